@@ -0,0 +1,170 @@
+package com.speedreader.trainer.data.ingest
+
+import android.content.Context
+import android.net.Uri
+import android.os.Build
+import android.os.Handler
+import android.os.Looper
+import android.os.StrictMode
+import android.os.SystemClock
+import android.os.strictmode.Violation
+import android.util.Log
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.speedreader.trainer.data.local.ContentHashIndex
+import com.speedreader.trainer.data.local.IngestCheckpointStore
+import com.speedreader.trainer.domain.model.UploadProgress
+import com.speedreader.trainer.domain.model.UserDocument
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.flow.last
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.util.UUID
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Runs a whole import from the main thread, the way the upload screen starts
+ * one, with a StrictMode policy that records every disk access and slow call
+ * made there. No violation may be recorded, and the main looper must keep
+ * answering while the file is processed.
+ */
+@RunWith(AndroidJUnit4::class)
+class IngestionMainThreadTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val violations = CopyOnWriteArrayList<Violation>()
+    private lateinit var executor: ExecutorService
+    private lateinit var file: File
+    private var previousPolicy: StrictMode.ThreadPolicy? = null
+
+    @Before
+    fun setUp() {
+        assumeTrue("StrictMode listeners need API 28", Build.VERSION.SDK_INT >= Build.VERSION_CODES.P)
+        executor = Executors.newFixedThreadPool(2)
+        // A fresh id keeps the hash index from answering with an earlier run's document
+        file = File(context.cacheDir, "main-thread-test.txt")
+        file.bufferedWriter().use { writer ->
+            writer.write("Run ${UUID.randomUUID()}\n\n")
+            repeat(PARAGRAPHS) { writer.write("Paragraph $it keeps the reader moving from one line to the next.\n\n") }
+        }
+    }
+
+    @After
+    fun tearDown() {
+        if (!::executor.isInitialized) return
+        onMain { previousPolicy?.let(StrictMode::setThreadPolicy) }
+        executor.shutdown()
+        file.delete()
+    }
+
+    @Test
+    fun importFromMainThreadDoesNoWorkThere() {
+        val pipeline = pipeline(executor.asCoroutineDispatcher())
+        onMain {
+            previousPolicy = StrictMode.getThreadPolicy()
+            StrictMode.setThreadPolicy(
+                StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectCustomSlowCalls()
+                    .penaltyListener(executor) { violations.add(it) }
+                    .build()
+            )
+        }
+
+        val heartbeat = Heartbeat().also { it.start() }
+        val result = try {
+            runBlocking(Dispatchers.Main) { run(pipeline).last() }
+        } finally {
+            heartbeat.stop()
+        }
+
+        assertTrue(result is UploadProgress.Complete)
+        Log.i(TAG, "longest main looper gap ${heartbeat.longestGapMs} ms")
+        assertEquals(emptyList<Violation>(), violations.toList())
+        assertTrue("main looper stalled ${heartbeat.longestGapMs} ms", heartbeat.longestGapMs < MAX_MAIN_GAP_MS)
+    }
+
+    @Test
+    fun stageOnMainThreadFailsLoudly() {
+        val pipeline = pipeline(Dispatchers.Main.immediate)
+        try {
+            runBlocking(Dispatchers.Main) { run(pipeline).last() }
+            fail("pipeline ran a stage on the main thread")
+        } catch (e: IllegalStateException) {
+            assertTrue(e.message.orEmpty().contains("main thread"))
+        }
+    }
+
+    private fun pipeline(dispatcher: CoroutineDispatcher) = IngestionPipeline(
+        context,
+        PdfTextExtractor(context, dispatcher),
+        TextFileExtractor(context, dispatcher),
+        EpubExtractor(context, dispatcher),
+        IngestCheckpointStore(context),
+        ContentHashIndex(context),
+        dispatcher
+    )
+
+    private fun run(pipeline: IngestionPipeline) = pipeline.run(
+        jobId = "main-thread-${UUID.randomUUID()}",
+        uri = Uri.fromFile(file),
+        fileType = "txt",
+        findExisting = { null },
+        persist = { withContext(Dispatchers.Default) { UserDocument(id = "main-thread-test") } }
+    )
+
+    private fun onMain(block: () -> Unit) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(block)
+    }
+
+    /** Posts to the main looper every frame and keeps the longest wait between runs. */
+    private inner class Heartbeat : Runnable {
+        @Volatile var longestGapMs = 0L
+        @Volatile private var running = false
+        private var last = 0L
+
+        fun start() {
+            running = true
+            onMain {
+                last = SystemClock.uptimeMillis()
+                mainHandler.post(this)
+            }
+        }
+
+        override fun run() {
+            if (!running) return
+            val now = SystemClock.uptimeMillis()
+            longestGapMs = maxOf(longestGapMs, now - last)
+            last = now
+            mainHandler.postDelayed(this, FRAME_MS)
+        }
+
+        fun stop() {
+            running = false
+            onMain { mainHandler.removeCallbacks(this) }
+        }
+    }
+
+    companion object {
+        private const val TAG = "IngestionMainThreadTest"
+        private const val PARAGRAPHS = 100_000
+        private const val FRAME_MS = 16L
+        private const val MAX_MAIN_GAP_MS = 250L
+    }
+}
@@ -0,0 +1,151 @@
+package com.speedreader.trainer.data.ingest
+
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.tom_roush.pdfbox.android.PDFBoxResourceLoader
+import com.tom_roush.pdfbox.io.MemoryUsageSetting
+import com.tom_roush.pdfbox.pdmodel.PDDocument
+import com.tom_roush.pdfbox.pdmodel.PDPage
+import com.tom_roush.pdfbox.pdmodel.PDPageContentStream
+import com.tom_roush.pdfbox.pdmodel.font.PDType1Font
+import com.tom_roush.pdfbox.pdmodel.graphics.color.PDDeviceRGB
+import com.tom_roush.pdfbox.pdmodel.graphics.image.PDImageXObject
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.fold
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.ByteArrayInputStream
+import java.io.File
+import kotlin.random.Random
+
+/**
+ * Extracts a generated 200 MB PDF, mostly full-page noise images with a text
+ * page every [TEXT_PAGE_EVERY] pages, and samples the heap while it runs. The
+ * document must load against a small heap ceiling and spill the rest to
+ * scratch files, so the peak growth stays within [HEAP_BUDGET_BYTES] however
+ * large the file is.
+ */
+@RunWith(AndroidJUnit4::class)
+class LargePdfMemoryTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private lateinit var pdf: File
+
+    @Before
+    fun setUp() {
+        PDFBoxResourceLoader.init(context)
+        assumeTrue("needs room for the test file", context.cacheDir.usableSpace > FILE_BYTES * 3)
+        pdf = File(context.cacheDir, "large.pdf")
+        writeLargePdf(pdf)
+    }
+
+    @After
+    fun tearDown() {
+        if (::pdf.isInitialized) pdf.delete()
+    }
+
+    @Test
+    fun largePdfExtractsWithinHeapBudget() {
+        assertTrue("generated ${pdf.length()} bytes", pdf.length() >= FILE_BYTES)
+        val extractor = PdfTextExtractor(context, Dispatchers.IO)
+        val sampler = HeapSampler()
+
+        val baseline = usedHeap()
+        sampler.start()
+        val text = try {
+            runBlocking {
+                extractor.extract(Uri.fromFile(pdf), heapCeilingBytes = HEAP_CEILING_BYTES)
+                    .fold(StringBuilder()) { text, segment -> text.append(segment.text) }
+            }
+        } finally {
+            sampler.stop()
+        }
+
+        val growth = sampler.peak - baseline
+        Log.i(TAG, "${pdf.length() / MIB} MiB PDF, peak heap growth ${growth / MIB} MiB")
+        assertEquals(PAGES / TEXT_PAGE_EVERY, Regex("Text page \\d+").findAll(text).count())
+        assertTrue("peak heap growth $growth bytes", growth < HEAP_BUDGET_BYTES)
+    }
+
+    /** Polls used heap on its own thread and keeps the highest reading. */
+    private class HeapSampler : Thread("heap-sampler") {
+        @Volatile var peak = 0L
+        @Volatile private var running = true
+
+        override fun run() {
+            val runtime = Runtime.getRuntime()
+            while (running) {
+                peak = maxOf(peak, runtime.totalMemory() - runtime.freeMemory())
+                sleep(SAMPLE_INTERVAL_MS)
+            }
+        }
+
+        fun stop() {
+            running = false
+            join()
+        }
+    }
+
+    private fun usedHeap(): Long {
+        val runtime = Runtime.getRuntime()
+        repeat(3) {
+            System.gc()
+            Thread.sleep(50)
+        }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    /**
+     * Image pages share one noise buffer but each gets its own uncompressed
+     * stream, so the file reaches its size without the writer holding it in
+     * memory.
+     */
+    private fun writeLargePdf(file: File) {
+        val noise = Random(42).nextBytes(IMAGE_SIZE * IMAGE_SIZE * 3)
+        val memory = MemoryUsageSetting.setupTempFileOnly().setTempDir(context.cacheDir)
+        PDDocument(memory).use { document ->
+            for (page in 0 until PAGES) {
+                val pdPage = PDPage()
+                document.addPage(pdPage)
+                PDPageContentStream(document, pdPage).use { stream ->
+                    if (page % TEXT_PAGE_EVERY == 0) {
+                        stream.beginText()
+                        stream.setFont(PDType1Font.HELVETICA, 12f)
+                        stream.newLineAtOffset(40f, 700f)
+                        stream.showText("Text page ${page / TEXT_PAGE_EVERY} between the scans.")
+                        stream.endText()
+                    } else {
+                        val image = PDImageXObject(
+                            document, ByteArrayInputStream(noise), null,
+                            IMAGE_SIZE, IMAGE_SIZE, 8, PDDeviceRGB.INSTANCE
+                        )
+                        stream.drawImage(image, 0f, 0f, pdPage.mediaBox.width, pdPage.mediaBox.height)
+                    }
+                }
+            }
+            document.save(file)
+        }
+    }
+
+    companion object {
+        private const val TAG = "LargePdfMemoryTest"
+        private const val MIB = 1024L * 1024
+        private const val FILE_BYTES = 200 * MIB
+        private const val IMAGE_SIZE = 1024
+        // 70 image pages at 3 MiB each, plus 10 text pages
+        private const val PAGES = 80
+        private const val TEXT_PAGE_EVERY = 8
+        private const val HEAP_CEILING_BYTES = 16 * MIB
+        private const val HEAP_BUDGET_BYTES = 64 * MIB
+        private const val SAMPLE_INTERVAL_MS = 10L
+    }
+}
@@ -0,0 +1,124 @@
+package com.speedreader.trainer.data.ingest
+
+import android.app.ActivityManager
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.tom_roush.pdfbox.android.PDFBoxResourceLoader
+import com.tom_roush.pdfbox.pdmodel.PDDocument
+import com.tom_roush.pdfbox.pdmodel.PDPage
+import com.tom_roush.pdfbox.pdmodel.PDPageContentStream
+import com.tom_roush.pdfbox.pdmodel.font.PDType1Font
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeFalse
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Parallel PDF extraction against one worker, on a generated text-only PDF.
+ * Each worker count from 1 to the core count is timed and logged; the text
+ * must come out the same whatever the count, and two or more workers must
+ * beat one on a multi-core device that isn't low on RAM.
+ */
+@RunWith(AndroidJUnit4::class)
+class PdfExtractionBenchmarkTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private lateinit var executor: ExecutorService
+    private lateinit var pdf: File
+
+    @Before
+    fun setUp() {
+        PDFBoxResourceLoader.init(context)
+        executor = Executors.newFixedThreadPool(PdfTextExtractor.MAX_WORKERS)
+        pdf = File(context.cacheDir, "benchmark.pdf")
+        writeTextPdf(pdf, PAGES)
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdown()
+        pdf.delete()
+    }
+
+    @Test
+    fun parallelExtractionScalesWithCores() {
+        val extractor = PdfTextExtractor(context, executor.asCoroutineDispatcher())
+        val uri = Uri.fromFile(pdf)
+        val cores = minOf(Runtime.getRuntime().availableProcessors(), PdfTextExtractor.MAX_WORKERS)
+
+        // Warm up class loading and font parsing
+        extract(extractor, uri, 1)
+
+        val expected = extract(extractor, uri, 1)
+        val timings = (1..cores).associateWith { workers ->
+            bestOf { assertEquals(expected, extract(extractor, uri, workers)) }
+        }
+        val single = timings.getValue(1)
+        timings.forEach { (workers, millis) ->
+            Log.i(TAG, "$workers worker(s): $millis ms, speedup ${"%.2f".format(single.toDouble() / millis)}x")
+        }
+
+        val activityManager = context.getSystemService(ActivityManager::class.java)
+        assumeFalse("low-RAM devices extract on one worker", activityManager.isLowRamDevice)
+        assumeFalse("single-core device", cores < 2)
+        val best = timings.filterKeys { it > 1 }.values.min()
+        assertTrue("best parallel $best ms vs single $single ms", best < single)
+    }
+
+    private fun extract(extractor: PdfTextExtractor, uri: Uri, workers: Int): String = runBlocking {
+        val segments = extractor.extract(uri, pagesPerSegment = PAGES_PER_SEGMENT, maxWorkers = workers).toList()
+        assertEquals(PAGES, segments.last().pagesDone)
+        segments.joinToString("") { it.text }
+    }
+
+    private inline fun bestOf(block: () -> Unit): Long {
+        var best = Long.MAX_VALUE
+        repeat(RUNS) {
+            val start = System.nanoTime()
+            block()
+            best = minOf(best, (System.nanoTime() - start) / 1_000_000)
+        }
+        return best
+    }
+
+    private fun writeTextPdf(file: File, pages: Int) {
+        PDDocument().use { document ->
+            repeat(pages) { page ->
+                val pdPage = PDPage()
+                document.addPage(pdPage)
+                PDPageContentStream(document, pdPage).use { stream ->
+                    stream.beginText()
+                    stream.setFont(PDType1Font.HELVETICA, 10f)
+                    stream.setLeading(12f)
+                    stream.newLineAtOffset(40f, 750f)
+                    repeat(LINES_PER_PAGE) { line ->
+                        stream.showText("Page ${page + 1} line ${line + 1}: the reader follows each word as it flashes past.")
+                        stream.newLine()
+                    }
+                    stream.endText()
+                }
+            }
+            document.save(file)
+        }
+    }
+
+    companion object {
+        private const val TAG = "PdfExtractionBenchmark"
+        private const val PAGES = 240
+        private const val PAGES_PER_SEGMENT = 8
+        private const val LINES_PER_PAGE = 50
+        private const val RUNS = 3
+    }
+}
@@ -0,0 +1,70 @@
+package com.speedreader.trainer.data.local
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.speedreader.trainer.domain.text.TokenStream
+import com.speedreader.trainer.domain.text.Tokenizer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class TokenStoreTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val store = TokenStore(context)
+    private val documentId = "token-store-test"
+
+    @After
+    fun tearDown() {
+        store.delete(documentId)
+    }
+
+    @Test
+    fun tokensSurviveARoundTrip() {
+        // Long gaps and words push the varints past one and two bytes
+        val text = "${Tokenizer.HEADING_MARKER} Heading\n\nShort words. " + " ".repeat(300) + "x".repeat(20_000) + "\n\n\n" +
+            "我们今天去图书馆看书。 Last word."
+        val tokens = Tokenizer.tokenize(text, markdown = true)
+        store.write(documentId, tokens)
+
+        val read = store.read(documentId, text)
+        assertNotNull(read)
+        assertSameTokens(tokens, read!!)
+    }
+
+    @Test
+    fun changedContentIsIgnored() {
+        val text = "Some stored words."
+        store.write(documentId, Tokenizer.tokenize(text))
+
+        assertNull(store.read(documentId, "Some other words."))
+        assertNotNull(store.read(documentId, text))
+    }
+
+    @Test
+    fun truncatedFileIsDiscarded() {
+        val text = "Words that will be cut short. ".repeat(100)
+        store.write(documentId, Tokenizer.tokenize(text))
+        val file = File(File(context.filesDir, "tokens"), "$documentId.tok")
+        file.writeBytes(file.readBytes().copyOf(file.length().toInt() / 2))
+
+        assertNull(store.read(documentId, text))
+        assertFalse(file.exists())
+    }
+
+    private fun assertSameTokens(expected: TokenStream, actual: TokenStream) {
+        assertEquals(expected.size, actual.size)
+        for (i in 0 until expected.size) {
+            assertEquals(expected.start(i), actual.start(i))
+            assertEquals(expected.end(i), actual.end(i))
+            assertEquals(expected.flagsAt(i), actual.flagsAt(i))
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.speedreader.trainer.domain.text
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Word boundaries for scripts written without spaces. Android backs
+ * BreakIterator with ICU and its dictionaries, which the host JVM lacks, so
+ * these only mean something on a device.
+ */
+@RunWith(AndroidJUnit4::class)
+class WordSegmenterDeviceTest {
+
+    @Test
+    fun chineseSplitsIntoWords() {
+        val words = words("我们今天去图书馆。")
+
+        assertTrue(words.toString(), words.size >= 4)
+        assertTrue(words.toString(), words.containsAll(listOf("我们", "今天")))
+        assertTrue(words.last().endsWith("。"))
+    }
+
+    @Test
+    fun japaneseSplitsIntoWords() {
+        val words = words("私は東京に住んでいます。")
+
+        assertTrue(words.toString(), words.size >= 5)
+        assertTrue(words.toString(), "東京" in words)
+    }
+
+    @Test
+    fun thaiSplitsIntoWords() {
+        val words = words("ฉันชอบอ่านหนังสือ")
+
+        assertTrue(words.toString(), words.size >= 3)
+        assertTrue(words.toString(), "หนังสือ" in words)
+    }
+
+    @Test
+    fun sentenceEndsLandOnTokens() {
+        val tokens = Tokenizer.tokenize("我们今天去图书馆。她喜欢读书。")
+
+        val sentenceEnds = (0 until tokens.size).filter(tokens::isSentenceEnd).map(tokens::wordAt)
+        assertTrue(tokens.size > 4)
+        assertEquals(2, sentenceEnds.size)
+        assertTrue(sentenceEnds.toString(), sentenceEnds.all { it.endsWith("。") })
+    }
+
+    /** Words as the reader sees them, also checking they cover the text in order. */
+    private fun words(text: String): List<String> {
+        assertTrue(WordSegmenter.forText(text) is WordSegmenter.Dictionary)
+        val tokens = Tokenizer.tokenize(text)
+        val words = List(tokens.size) { tokens.wordAt(it) }
+        assertEquals(text, words.joinToString(""))
+        return words
+    }
+}
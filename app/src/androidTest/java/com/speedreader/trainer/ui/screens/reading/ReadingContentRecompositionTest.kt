@@ -0,0 +1,99 @@
+package com.speedreader.trainer.ui.screens.reading
+
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.runtime.CompositionLocalProvider
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.test.junit4.createComposeRule
+import androidx.compose.ui.test.onNodeWithText
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.speedreader.trainer.domain.reading.ChunkIndex
+import com.speedreader.trainer.domain.text.EncodedDocument
+import com.speedreader.trainer.domain.text.Tokenizer
+import kotlinx.coroutines.flow.MutableStateFlow
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Advances the cursor of the real reading content the way playback does and
+ * counts how often each probed scope composes. Only the word display and
+ * counter may follow every tick, the progress bar only each change of
+ * percent, and the content around them, controls included, not at all.
+ */
+@RunWith(AndroidJUnit4::class)
+class ReadingContentRecompositionTest {
+
+    @get:Rule
+    val composeRule = createComposeRule()
+
+    private val compositions = HashMap<String, Int>()
+
+    @Test
+    fun cursorTicksOnlyRecomposeTheLeaves() {
+        val text = List(WORDS) { "word$it" }.joinToString(" ")
+        val uiState = SpeedReadingUiState(
+            wordCount = WORDS,
+            chunks = ChunkIndex.build(EncodedDocument.encode(Tokenizer.tokenize(text)), 1),
+            isLoading = false
+        )
+        val cursor = mutableStateOf(0)
+        val playbackStats = MutableStateFlow(PlaybackStats())
+        val probe: (String) -> Unit = { name -> compositions.merge(name, 1, Int::plus) }
+
+        composeRule.setContent {
+            CompositionLocalProvider(LocalRecompositionProbe provides probe) {
+                MaterialTheme {
+                    ReadingContent(
+                        uiState = uiState,
+                        cursor = cursor,
+                        playbackStats = playbackStats,
+                        controls = NoControls,
+                        backgroundColor = Color.White,
+                        contentColor = Color.Black,
+                        modifier = Modifier.fillMaxSize()
+                    )
+                }
+            }
+        }
+        composeRule.waitForIdle()
+
+        for (tick in 1..TICKS) {
+            composeRule.runOnIdle { cursor.value = tick }
+            composeRule.waitForIdle()
+        }
+
+        composeRule.onNodeWithText("Word $TICKS/$WORDS").assertExists()
+        composeRule.onNodeWithText("${TICKS * 100 / WORDS}% complete").assertExists()
+        composeRule.runOnIdle {
+            assertEquals(1, compositions["ReadingContent"])
+            assertEquals(1 + TICKS, compositions["WordDisplay"])
+            assertEquals(1 + TICKS, compositions["WordCounter"])
+            // The percent moves every other tick at this length
+            assertEquals(1 + TICKS * 100 / WORDS, compositions["ReadingProgressBar"])
+        }
+    }
+
+    private object NoControls : ReadingControls {
+        override fun play() = Unit
+        override fun pause() = Unit
+        override fun setWpm(wpm: Int) = Unit
+        override fun setFontSize(size: Int) = Unit
+        override fun setChunkSize(size: Int) = Unit
+        override fun setChunkingEnabled(enabled: Boolean) = Unit
+        override fun goBackOneWord() = Unit
+        override fun goBackToSentenceStart() = Unit
+        override fun goBackToParagraphStart() = Unit
+        override fun skipForwardToNextParagraph() = Unit
+        override fun skipForwardOneWord() = Unit
+        override fun seekToFraction(fraction: Float) = Unit
+    }
+
+    companion object {
+        private const val WORDS = 200
+        private const val TICKS = 50
+    }
+}
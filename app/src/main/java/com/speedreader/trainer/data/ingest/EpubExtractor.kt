@@ -0,0 +1,195 @@
+package com.speedreader.trainer.data.ingest
+
+import android.content.Context
+import android.net.Uri
+import android.util.Xml
+import com.speedreader.trainer.di.IngestDispatcher
+import com.speedreader.trainer.domain.text.Tokenizer
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import org.xmlpull.v1.XmlPullParser
+import java.io.File
+import java.io.InputStream
+import java.util.UUID
+import java.util.zip.ZipFile
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Reads an EPUB chapter by chapter in spine order. The archive is copied to a
+ * cache file so entries can be opened in any order, and each XHTML chapter is
+ * walked with a pull parser, so only the current chapter's text is in memory.
+ * Every spine item is emitted as its own segment flagged with
+ * [ExtractedSegment.chapterStart], empty if the entry is missing, so segment
+ * numbers match spine positions when resuming.
+ */
+@Singleton
+class EpubExtractor @Inject constructor(
+    @ApplicationContext private val context: Context,
+    @IngestDispatcher private val dispatcher: CoroutineDispatcher
+) {
+    fun extract(uri: Uri, skipSegments: Int = 0): Flow<ExtractedSegment> = flow {
+        val file = File(context.cacheDir, "epub-${UUID.randomUUID()}.epub")
+        try {
+            val inputStream = context.contentResolver.openInputStream(uri)
+                ?: throw Exception("Failed to read EPUB file")
+            inputStream.use { input -> file.outputStream().use { input.copyTo(it) } }
+
+            ZipFile(file).use { zip ->
+                val opfPath = zip.getEntry(CONTAINER_PATH)
+                    ?.let { entry -> zip.getInputStream(entry).use { readRootFile(it) } }
+                    ?: throw Exception("Not a valid EPUB file")
+                val opfEntry = zip.getEntry(opfPath) ?: throw Exception("Not a valid EPUB file")
+                val chapters = zip.getInputStream(opfEntry).use { readSpine(it) }
+                val baseDir = opfPath.substringBeforeLast('/', "")
+
+                for (index in skipSegments until chapters.size) {
+                    currentCoroutineContext().ensureActive()
+                    val text = zip.getEntry(resolve(baseDir, chapters[index]))
+                        ?.let { entry -> zip.getInputStream(entry).use { readChapter(it) } }
+                        ?: ""
+                    emit(ExtractedSegment(text, index + 1, chapters.size, chapterStart = true))
+                }
+            }
+        } finally {
+            file.delete()
+        }
+    }.flowOn(dispatcher)
+
+    /** Path of the package (OPF) document named by META-INF/container.xml. */
+    private fun readRootFile(input: InputStream): String? {
+        val parser = newParser(input)
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            if (parser.eventType == XmlPullParser.START_TAG && parser.name == "rootfile") {
+                return parser.getAttributeValue(null, "full-path")
+            }
+        }
+        return null
+    }
+
+    /** Hrefs of the spine's XHTML items, in reading order. */
+    private fun readSpine(input: InputStream): List<String> {
+        val parser = newParser(input)
+        val manifest = HashMap<String, String>()
+        val spine = ArrayList<String>()
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            if (parser.eventType != XmlPullParser.START_TAG) continue
+            when (localName(parser.name)) {
+                "item" -> {
+                    val id = parser.getAttributeValue(null, "id")
+                    val href = parser.getAttributeValue(null, "href")
+                    val type = parser.getAttributeValue(null, "media-type")
+                    if (id != null && href != null && (type == null || type.contains("html"))) {
+                        manifest[id] = href
+                    }
+                }
+                "itemref" -> {
+                    parser.getAttributeValue(null, "idref")?.let { spine.add(it) }
+                }
+            }
+        }
+        return spine.mapNotNull { manifest[it] }
+    }
+
+    /**
+     * Visible text of one XHTML chapter. Block elements become paragraph
+     * breaks and headings become [Tokenizer.HEADING_MARKER] lines, matching
+     * what the tokenizer expects from Markdown.
+     */
+    private fun readChapter(input: InputStream): String {
+        val parser = newParser(input)
+        val text = StringBuilder()
+        var skipDepth = 0
+        var inHeading = false
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+            when (parser.eventType) {
+                XmlPullParser.START_TAG -> {
+                    val name = localName(parser.name)
+                    when {
+                        skipDepth > 0 || name in SKIPPED -> skipDepth++
+                        name in HEADINGS -> {
+                            text.append("\n\n").append(Tokenizer.HEADING_MARKER).append(' ')
+                            inHeading = true
+                        }
+                        name == "br" -> text.append(if (inHeading) ' ' else '\n')
+                        name in BLOCKS -> text.append("\n\n")
+                    }
+                }
+                XmlPullParser.END_TAG -> {
+                    val name = localName(parser.name)
+                    when {
+                        skipDepth > 0 -> skipDepth--
+                        name in HEADINGS -> {
+                            text.append("\n\n")
+                            inHeading = false
+                        }
+                        name in BLOCKS -> text.append("\n\n")
+                    }
+                }
+                XmlPullParser.TEXT -> if (skipDepth == 0) appendCollapsed(text, parser.text)
+            }
+        }
+        return text.append("\n\n").toString()
+    }
+
+    // Source line breaks inside XHTML are not paragraph structure
+    private fun appendCollapsed(out: StringBuilder, text: String) {
+        var space = false
+        for (c in text) {
+            if (c == Tokenizer.HEADING_MARKER) continue
+            if (c.isWhitespace()) {
+                space = true
+            } else {
+                if (space && out.isNotEmpty() && !out[out.length - 1].isWhitespace()) out.append(' ')
+                space = false
+                out.append(c)
+            }
+        }
+        if (space && out.isNotEmpty() && !out[out.length - 1].isWhitespace()) out.append(' ')
+    }
+
+    private fun newParser(input: InputStream): XmlPullParser {
+        val parser = Xml.newPullParser()
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false)
+        try {
+            // Tolerates the HTML entities and sloppy markup common in real EPUBs
+            parser.setFeature(RELAXED_FEATURE, true)
+        } catch (e: Exception) {
+            // Parser without relaxed mode; well-formed books still read fine
+        }
+        parser.setInput(input, null)
+        return parser
+    }
+
+    private fun localName(name: String): String = name.substringAfter(':').lowercase()
+
+    private fun resolve(baseDir: String, href: String): String {
+        val path = Uri.decode(href.substringBefore('#'))
+        val parts = ArrayList<String>()
+        if (baseDir.isNotEmpty()) parts.addAll(baseDir.split('/'))
+        for (part in path.split('/')) {
+            when (part) {
+                "", "." -> Unit
+                ".." -> if (parts.isNotEmpty()) parts.removeAt(parts.size - 1)
+                else -> parts.add(part)
+            }
+        }
+        return parts.joinToString("/")
+    }
+
+    companion object {
+        private const val CONTAINER_PATH = "META-INF/container.xml"
+        private const val RELAXED_FEATURE = "http://xmlpull.org/v1/doc/features.html#relaxed"
+        private val SKIPPED = setOf("head", "script", "style", "svg", "math")
+        private val HEADINGS = setOf("h1", "h2", "h3", "h4", "h5", "h6")
+        private val BLOCKS = setOf(
+            "p", "div", "section", "article", "blockquote", "li", "ul", "ol",
+            "tr", "table", "pre", "hr", "figure", "figcaption", "aside", "dd", "dt"
+        )
+    }
+}
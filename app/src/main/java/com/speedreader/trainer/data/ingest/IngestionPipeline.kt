@@ -0,0 +1,289 @@
+package com.speedreader.trainer.data.ingest
+
+import android.content.Context
+import android.net.Uri
+import android.os.Looper
+import android.util.Log
+import com.speedreader.trainer.data.local.ContentHashIndex
+import com.speedreader.trainer.data.local.IngestCheckpoint
+import com.speedreader.trainer.data.local.IngestCheckpointStore
+import com.speedreader.trainer.di.IngestDispatcher
+import com.speedreader.trainer.domain.model.IngestStage
+import com.speedreader.trainer.domain.model.UploadProgress
+import com.speedreader.trainer.domain.model.UserDocument
+import com.speedreader.trainer.domain.text.ContentHash
+import com.speedreader.trainer.domain.text.TextNormalizer
+import com.speedreader.trainer.domain.text.TextRevision
+import com.speedreader.trainer.domain.text.TokenStream
+import com.speedreader.trainer.domain.text.TokenStreamBuilder
+import com.speedreader.trainer.domain.text.Tokenizer
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.buffer
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/** Everything ingestion produces for one file, ready to be persisted. */
+class IngestedText(
+    val tokens: TokenStream,
+    val chapterStarts: List<Int>,
+    val sourceHash: String,
+    val textHash: String,
+    // How the text differs from the version it replaces, for updates
+    val revision: TextRevision? = null
+)
+
+/** The stored document an update replaces, with its tokens. */
+class PreviousVersion(
+    val document: UserDocument,
+    val tokens: TokenStream
+)
+
+/**
+ * Turns an uploaded file into a stored document in five stages: read (pick
+ * and open the source), extract, normalize, tokenize and persist. Extraction
+ * streams segments, and normalizing and tokenizing run on each segment as it
+ * arrives while the extractor moves on to the next one.
+ *
+ * After each segment the normalized text so far is checkpointed under the
+ * job's id, so a run interrupted by process death resumes from the last
+ * finished segment: earlier text is re-tokenized from the checkpoint and the
+ * extractor skips what it already produced.
+ *
+ * Material that was imported before is not processed again. The source
+ * bytes are hashed before extraction and the normalized text as it streams
+ * through; a hash found in the [ContentHashIndex] whose document still
+ * exists ends the run with that document.
+ *
+ * The whole pipeline runs on the [IngestDispatcher] pool, and every stage
+ * checks that it is off the main thread, so a misconfigured caller fails
+ * loudly instead of freezing the UI.
+ */
+@Singleton
+class IngestionPipeline @Inject constructor(
+    @ApplicationContext private val context: Context,
+    private val pdfTextExtractor: PdfTextExtractor,
+    private val textFileExtractor: TextFileExtractor,
+    private val epubExtractor: EpubExtractor,
+    private val checkpointStore: IngestCheckpointStore,
+    private val contentHashIndex: ContentHashIndex,
+    @IngestDispatcher private val dispatcher: CoroutineDispatcher
+) {
+    /**
+     * Runs every stage for [uri] as job [jobId], handing the result to
+     * [persist] last. [findExisting] looks up a document the hash index
+     * points at, returning null only when it is gone and throwing when the
+     * lookup itself fails. With [previous], the file
+     * is a new version of that document: it is never swapped for another
+     * document, and only paragraphs that changed are tokenized. Progress is
+     * emitted as it goes, ending with [UploadProgress.Complete].
+     */
+    fun run(
+        jobId: String,
+        uri: Uri,
+        fileType: String,
+        previous: PreviousVersion? = null,
+        findExisting: suspend (documentId: String) -> UserDocument?,
+        persist: suspend (IngestedText) -> UserDocument
+    ): Flow<UploadProgress> = flow {
+        emit(UploadProgress.Working(IngestStage.READ))
+        val sourceHash = stage(IngestStage.READ) { hashSource(uri) }
+        val sameSource = if (previous != null) {
+            previous.document.takeIf { it.sourceHash == sourceHash }
+        } else {
+            reuse(contentHashIndex.findBySource(sourceHash), findExisting)
+        }
+        if (sameSource != null) {
+            stage(IngestStage.READ) { checkpointStore.clear(jobId) }
+            emit(UploadProgress.Complete(sameSource))
+            return@flow
+        }
+
+        val resume = stage(IngestStage.READ) { checkpointStore.load(jobId) }
+        val skip = resume?.segmentsDone ?: 0
+        val segments = stage(IngestStage.READ) {
+            when (fileType.lowercase()) {
+                "pdf" -> pdfTextExtractor.extract(uri, skipSegments = skip)
+                "txt" -> textFileExtractor.extract(uri, markdown = false, skipSegments = skip)
+                "md" -> textFileExtractor.extract(uri, markdown = true, skipSegments = skip)
+                "epub" -> epubExtractor.extract(uri, skipSegments = skip)
+                else -> throw IllegalArgumentException("Unsupported file type: $fileType")
+            }
+        }
+
+        // An update only collects the text; it is tokenized against the previous version at the end
+        val markdown = marksHeadings(fileType)
+        val builder = if (previous == null) TokenStreamBuilder(markdown) else null
+        val revisedText = if (previous != null) StringBuilder() else null
+        val textDigest = ContentHash.newDigest()
+        val chapterOffsets = ArrayList<Int>()
+        var textLength = 0
+        var segmentsDone = skip
+        var pagesDone = 0
+        var pagesTotal = 0
+
+        fun take(text: String) {
+            textDigest.update(text.toByteArray(Charsets.UTF_8))
+            builder?.append(text)
+            revisedText?.append(text)
+            textLength += text.length
+        }
+
+        if (resume != null) {
+            emit(UploadProgress.Working(IngestStage.TOKENIZE))
+            stage(IngestStage.TOKENIZE) { take(checkpointStore.readText(jobId, resume)) }
+            chapterOffsets.addAll(resume.chapterOffsets)
+            pagesDone = resume.pagesDone
+            pagesTotal = resume.pagesTotal
+            if (pagesTotal > 0) emit(UploadProgress.Extracting(pagesDone, pagesTotal))
+        }
+
+        emit(UploadProgress.Working(IngestStage.EXTRACT))
+        segments.buffer(SEGMENT_BUFFER).collect { segment ->
+            stage(IngestStage.EXTRACT) {
+                if (segment.chapterStart) chapterOffsets.add(textLength)
+            }
+            val text = stage(IngestStage.NORMALIZE) { TextNormalizer.normalize(segment.text) }
+            stage(IngestStage.TOKENIZE) { take(text) }
+
+            segmentsDone++
+            pagesDone = segment.pagesDone
+            pagesTotal = segment.pagesTotal
+            stage(IngestStage.PERSIST) {
+                checkpointStore.append(jobId, text) { textBytes ->
+                    IngestCheckpoint(segmentsDone, pagesDone, pagesTotal, textBytes, chapterOffsets.toList())
+                }
+            }
+            if (pagesTotal > 0) emit(UploadProgress.Extracting(pagesDone, pagesTotal))
+        }
+
+        // Same text from a different file, e.g. a re-exported PDF
+        val textHash = ContentHash.toHex(textDigest.digest())
+        val sameText = if (previous != null) {
+            previous.document.takeIf { it.textHash == textHash }
+        } else {
+            reuse(contentHashIndex.findByText(textHash), findExisting)
+        }
+        if (sameText != null) {
+            stage(IngestStage.PERSIST) {
+                contentHashIndex.put(sourceHash, textHash, sameText.id)
+                checkpointStore.clear(jobId)
+            }
+            emit(UploadProgress.Complete(sameText))
+            return@flow
+        }
+
+        emit(UploadProgress.Working(IngestStage.TOKENIZE))
+        var revision: TextRevision? = null
+        val tokens = stage(IngestStage.TOKENIZE) {
+            if (previous != null && revisedText != null) {
+                val text = revisedText.toString()
+                val diff = TextRevision.between(previous.tokens.text, text)
+                revision = diff
+                // Old tokens only carry over when both versions were read for heading markers
+                if (marksHeadings(previous.document.fileType) == markdown) {
+                    Tokenizer.retokenize(previous.tokens, text, diff, markdown)
+                } else {
+                    Tokenizer.tokenize(text, markdown)
+                }
+            } else {
+                checkNotNull(builder).build()
+            }
+        }
+        val chapterStarts = stage(IngestStage.TOKENIZE) { chapterStartsFor(tokens, chapterOffsets) }
+
+        emit(UploadProgress.Working(IngestStage.PERSIST))
+        val document = stage(IngestStage.PERSIST) {
+            persist(IngestedText(tokens, chapterStarts, sourceHash, textHash, revision))
+        }
+        stage(IngestStage.PERSIST) {
+            if (previous != null) contentHashIndex.remove(previous.document.id)
+            contentHashIndex.put(sourceHash, textHash, document.id)
+            checkpointStore.clear(jobId)
+        }
+        emit(UploadProgress.Complete(document))
+    }.flowOn(dispatcher)
+
+    /**
+     * Word index of the first word at or after each chapter's text offset.
+     * Chapters with no text (covers, image pages) share the next one's anchor.
+     */
+    private fun chapterStartsFor(tokens: TokenStream, offsets: List<Int>): List<Int> {
+        val starts = ArrayList<Int>(offsets.size)
+        for (offset in offsets) {
+            var low = 0
+            var high = tokens.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (tokens.start(mid) < offset) low = mid + 1 else high = mid
+            }
+            if (starts.lastOrNull() != low) starts.add(low)
+        }
+        return starts
+    }
+
+    /**
+     * The indexed document, or null when there is none to reuse. The entry
+     * is dropped only when the document is confirmed gone; a failed lookup,
+     * e.g. while offline, imports normally and keeps the entry.
+     */
+    private suspend fun reuse(
+        documentId: String?,
+        findExisting: suspend (String) -> UserDocument?
+    ): UserDocument? {
+        if (documentId == null) return null
+        val existing = try {
+            findExisting(documentId)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.w("IngestionPipeline", "Could not look up imported document $documentId", e)
+            return null
+        }
+        if (existing == null) contentHashIndex.remove(documentId)
+        return existing
+    }
+
+    private fun hashSource(uri: Uri): String {
+        val digest = ContentHash.newDigest()
+        val inputStream = context.contentResolver.openInputStream(uri)
+            ?: throw Exception("Failed to read file")
+        inputStream.use { input ->
+            val buffer = ByteArray(HASH_BUFFER_BYTES)
+            while (true) {
+                val read = input.read(buffer)
+                if (read < 0) break
+                digest.update(buffer, 0, read)
+            }
+        }
+        return ContentHash.toHex(digest.digest())
+    }
+
+    private inline fun <T> stage(stage: IngestStage, block: () -> T): T {
+        check(Looper.myLooper() != Looper.getMainLooper()) {
+            "Ingestion stage $stage must not run on the main thread"
+        }
+        return block()
+    }
+
+    companion object {
+        /**
+         * Whether text extracted from [fileType] marks headings with
+         * [Tokenizer.HEADING_MARKER] lines: only the Markdown and EPUB
+         * extractors write them.
+         */
+        fun marksHeadings(fileType: String): Boolean =
+            when (fileType.lowercase()) {
+                "md", "epub" -> true
+                else -> false
+            }
+
+        // Segments the extractor may run ahead of tokenizing
+        private const val SEGMENT_BUFFER = 4
+        private const val HASH_BUFFER_BYTES = 64 * 1024
+    }
+}
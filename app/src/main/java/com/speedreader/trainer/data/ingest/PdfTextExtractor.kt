@@ -0,0 +1,238 @@
+package com.speedreader.trainer.data.ingest
+
+import android.app.ActivityManager
+import android.content.Context
+import android.net.Uri
+import com.speedreader.trainer.di.IngestDispatcher
+import com.tom_roush.pdfbox.android.PDFBoxResourceLoader
+import com.tom_roush.pdfbox.io.MemoryUsageSetting
+import com.tom_roush.pdfbox.pdmodel.PDDocument
+import com.tom_roush.pdfbox.pdmodel.PDPage
+import com.tom_roush.pdfbox.text.PDFTextStripper
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.joinAll
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import java.util.concurrent.atomic.AtomicInteger
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * A piece of extracted text in reading order, plus how far through the file it
+ * reaches, in pages or chapters. Formats without either report 0 for both
+ * counts. [chapterStart] marks the first segment of a chapter.
+ */
+data class ExtractedSegment(
+    val text: String,
+    val pagesDone: Int,
+    val pagesTotal: Int,
+    val chapterStart: Boolean = false
+)
+
+/**
+ * Pulls text out of a PDF a few pages at a time instead of stripping the whole
+ * file in one call, so callers see progress and can stop between ranges.
+ * When memory allows, ranges are stripped on several cores at once.
+ *
+ * Documents are loaded with a fixed heap allowance and spill the rest of the
+ * file to scratch files in the cache directory, so a large scanned PDF costs
+ * disk rather than heap.
+ */
+@Singleton
+class PdfTextExtractor @Inject constructor(
+    @ApplicationContext private val context: Context,
+    @IngestDispatcher private val dispatcher: CoroutineDispatcher
+) {
+    init {
+        PDFBoxResourceLoader.init(context)
+    }
+
+    /**
+     * Emits one segment per range of [pagesPerSegment] pages, in page order,
+     * starting after the first [skipSegments] ranges when resuming. At most
+     * [maxWorkers] ranges are stripped at once. Cancelling the collector
+     * stops extraction before the next range.
+     */
+    fun extract(
+        uri: Uri,
+        skipSegments: Int = 0,
+        pagesPerSegment: Int = DEFAULT_PAGES_PER_SEGMENT,
+        heapCeilingBytes: Long = defaultHeapCeiling(),
+        maxWorkers: Int = MAX_WORKERS
+    ): Flow<ExtractedSegment> = flow {
+        val workers = workerCount(uri, heapCeilingBytes).coerceAtMost(maxWorkers)
+        if (workers > 1) {
+            emitAll(extractParallel(uri, skipSegments, pagesPerSegment, workers, heapCeilingBytes / workers))
+        } else {
+            emitAll(extractSequential(uri, skipSegments, pagesPerSegment, heapCeilingBytes))
+        }
+    }.flowOn(dispatcher)
+
+    private fun extractSequential(
+        uri: Uri,
+        skipSegments: Int,
+        pagesPerSegment: Int,
+        heapBytes: Long
+    ): Flow<ExtractedSegment> = flow {
+        loadDocument(uri, heapBytes).use { document ->
+            val pageCount = document.numberOfPages
+            val stripper = PDFTextStripper()
+            var firstPage = skipSegments * pagesPerSegment + 1
+            while (firstPage <= pageCount) {
+                currentCoroutineContext().ensureActive()
+                val lastPage = minOf(firstPage + pagesPerSegment - 1, pageCount)
+                emit(ExtractedSegment(stripRange(document, stripper, firstPage, lastPage), lastPage, pageCount))
+                firstPage = lastPage + 1
+            }
+        }
+    }.flowOn(dispatcher)
+
+    /**
+     * Each worker loads its own [PDDocument], since pdfbox documents are not
+     * thread safe, and claims page ranges from a shared counter. Finished
+     * ranges are re-ordered before emission; a window of two ranges per worker
+     * stops fast workers from piling up text ahead of a slow one.
+     */
+    private fun extractParallel(
+        uri: Uri,
+        skipSegments: Int,
+        pagesPerSegment: Int,
+        workers: Int,
+        heapBytesPerWorker: Long
+    ): Flow<ExtractedSegment> = channelFlow {
+        val first = loadDocument(uri, heapBytesPerWorker)
+        try {
+            val pageCount = first.numberOfPages
+            val rangeCount = (pageCount + pagesPerSegment - 1) / pagesPerSegment
+            val nextRange = AtomicInteger(skipSegments)
+            val window = Semaphore(workers * 2)
+            val finished = Channel<Pair<Int, String>>(Channel.UNLIMITED)
+
+            coroutineScope {
+                val jobs = List(minOf(workers, rangeCount - skipSegments).coerceAtLeast(0)) { worker ->
+                    launch(dispatcher) {
+                        val document = if (worker == 0) first else loadDocument(uri, heapBytesPerWorker)
+                        try {
+                            val stripper = PDFTextStripper()
+                            while (true) {
+                                window.acquire()
+                                val range = nextRange.getAndIncrement()
+                                if (range >= rangeCount) {
+                                    window.release()
+                                    break
+                                }
+                                currentCoroutineContext().ensureActive()
+                                val firstPage = range * pagesPerSegment + 1
+                                val lastPage = minOf((range + 1) * pagesPerSegment, pageCount)
+                                finished.send(range to stripRange(document, stripper, firstPage, lastPage))
+                            }
+                        } finally {
+                            if (document !== first) document.close()
+                        }
+                    }
+                }
+                launch {
+                    jobs.joinAll()
+                    finished.close()
+                }
+
+                val pending = HashMap<Int, String>()
+                var next = skipSegments
+                for ((range, text) in finished) {
+                    pending[range] = text
+                    while (true) {
+                        val ready = pending.remove(next) ?: break
+                        send(ExtractedSegment(ready, minOf((next + 1) * pagesPerSegment, pageCount), pageCount))
+                        window.release()
+                        next++
+                    }
+                }
+            }
+        } finally {
+            first.close()
+        }
+    }.flowOn(dispatcher)
+
+    /**
+     * Text of pages [firstPage]..[lastPage] (1-based), skipping pages that can
+     * only hold images so their content streams are never parsed. Runs of
+     * text pages are stripped in one call each.
+     */
+    private fun stripRange(document: PDDocument, stripper: PDFTextStripper, firstPage: Int, lastPage: Int): String {
+        val text = StringBuilder()
+        var runStart = -1
+        for (page in firstPage..lastPage + 1) {
+            val textPage = page <= lastPage && !isImageOnly(document.getPage(page - 1))
+            if (textPage && runStart < 0) {
+                runStart = page
+            } else if (!textPage && runStart >= 0) {
+                stripper.startPage = runStart
+                stripper.endPage = page - 1
+                text.append(stripper.getText(document))
+                runStart = -1
+            }
+        }
+        return text.toString()
+    }
+
+    /**
+     * A page with no fonts and no form XObjects (which carry their own
+     * resources) has nothing for the text stripper to find.
+     */
+    private fun isImageOnly(page: PDPage): Boolean {
+        val resources = page.resources ?: return true
+        if (resources.fontNames.iterator().hasNext()) return false
+        return resources.xObjectNames.all { resources.isImageXObject(it) }
+    }
+
+    private fun loadDocument(uri: Uri, heapBytes: Long): PDDocument {
+        val inputStream = context.contentResolver.openInputStream(uri)
+            ?: throw Exception("Failed to read PDF file")
+        val memory = MemoryUsageSetting.setupMixed(heapBytes).setTempDir(context.cacheDir)
+        return inputStream.use { PDDocument.load(it, memory) }
+    }
+
+    /** A quarter of the heap, the default allowance for a whole extraction. */
+    private fun defaultHeapCeiling(): Long = Runtime.getRuntime().maxMemory() / 4
+
+    /**
+     * Workers to use for [uri]: one per core up to [MAX_WORKERS], but only as
+     * many as fit in half of the free heap, budgeting each at the smaller of a
+     * parsed copy of the file and [heapCeilingBytes]. Low-RAM devices always
+     * extract on a single worker.
+     */
+    private fun workerCount(uri: Uri, heapCeilingBytes: Long): Int {
+        val activityManager = context.getSystemService(ActivityManager::class.java)
+        if (activityManager == null || activityManager.isLowRamDevice) return 1
+
+        val fileBytes = try {
+            context.contentResolver.openAssetFileDescriptor(uri, "r")?.use { it.length } ?: -1L
+        } catch (e: Exception) {
+            -1L
+        }
+        if (fileBytes <= 0) return 1
+
+        val runtime = Runtime.getRuntime()
+        val freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())
+        val perWorker = minOf(fileBytes * PARSED_BYTES_PER_FILE_BYTE, heapCeilingBytes) + WORKER_BASE_BYTES
+        val byMemory = (freeHeap / 2 / perWorker).toInt()
+        return byMemory.coerceIn(1, minOf(runtime.availableProcessors(), MAX_WORKERS))
+    }
+
+    companion object {
+        const val DEFAULT_PAGES_PER_SEGMENT = 8
+        const val MAX_WORKERS = 4
+        private const val PARSED_BYTES_PER_FILE_BYTE = 3
+        private const val WORKER_BASE_BYTES = 8L * 1024 * 1024
+    }
+}
@@ -0,0 +1,113 @@
+package com.speedreader.trainer.data.ingest
+
+import android.content.Context
+import android.net.Uri
+import com.speedreader.trainer.di.IngestDispatcher
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import java.io.BufferedInputStream
+import java.io.InputStreamReader
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.Charset
+import java.nio.charset.CodingErrorAction
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Reads .txt and .md files through fixed-size buffers and emits the text in
+ * [TextSegments], so nothing downstream waits for the whole file. The
+ * encoding comes from a byte order mark when there is one, otherwise from
+ * sniffing the first [SNIFF_BYTES].
+ */
+@Singleton
+class TextFileExtractor @Inject constructor(
+    @ApplicationContext private val context: Context,
+    @IngestDispatcher private val dispatcher: CoroutineDispatcher
+) {
+    /**
+     * Emits the file's text; Markdown is stripped to plain text in the same
+     * pass. When resuming, the first [skipSegments] segments are read but not
+     * emitted, since segment boundaries only depend on the file's contents.
+     */
+    fun extract(uri: Uri, markdown: Boolean, skipSegments: Int = 0): Flow<ExtractedSegment> = flow {
+        val inputStream = context.contentResolver.openInputStream(uri)
+            ?: throw Exception("Failed to read text file")
+        BufferedInputStream(inputStream, SNIFF_BYTES).use { stream ->
+            val segments = TextSegments(InputStreamReader(stream, detectCharset(stream)), markdown)
+            var segmentIndex = 0
+            while (true) {
+                currentCoroutineContext().ensureActive()
+                val text = segments.next() ?: break
+                if (segmentIndex++ >= skipSegments) emit(ExtractedSegment(text, 0, 0))
+            }
+        }
+    }.flowOn(dispatcher)
+
+    /**
+     * Picks the charset for [stream] and leaves it positioned after any byte
+     * order mark. Without a BOM: UTF-16 if the sample is mostly NULs in one
+     * byte lane, UTF-8 if the sample decodes cleanly, otherwise Windows-1252.
+     */
+    private fun detectCharset(stream: BufferedInputStream): Charset {
+        stream.mark(SNIFF_BYTES)
+        val sample = ByteArray(SNIFF_BYTES)
+        var length = 0
+        while (length < sample.size) {
+            val read = stream.read(sample, length, sample.size - length)
+            if (read < 0) break
+            length += read
+        }
+        stream.reset()
+
+        fun byteAt(index: Int) = if (index < length) sample[index].toInt() and 0xFF else -1
+
+        when {
+            byteAt(0) == 0xEF && byteAt(1) == 0xBB && byteAt(2) == 0xBF -> {
+                stream.skip(3)
+                return Charsets.UTF_8
+            }
+            byteAt(0) == 0xFF && byteAt(1) == 0xFE -> {
+                stream.skip(2)
+                return Charsets.UTF_16LE
+            }
+            byteAt(0) == 0xFE && byteAt(1) == 0xFF -> {
+                stream.skip(2)
+                return Charsets.UTF_16BE
+            }
+        }
+
+        var evenNuls = 0
+        var oddNuls = 0
+        for (i in 0 until length) {
+            if (sample[i].toInt() == 0) {
+                if (i % 2 == 0) evenNuls++ else oddNuls++
+            }
+        }
+        val lane = length / 2
+        if (lane > 0 && oddNuls > lane * 3 / 4 && evenNuls < lane / 10) return Charsets.UTF_16LE
+        if (lane > 0 && evenNuls > lane * 3 / 4 && oddNuls < lane / 10) return Charsets.UTF_16BE
+
+        val decoder = Charsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT)
+        // A sample cut mid-character is not an error unless it is the whole file
+        val result = decoder.decode(ByteBuffer.wrap(sample, 0, length), CharBuffer.allocate(length), length < SNIFF_BYTES)
+        if (!result.isError) return Charsets.UTF_8
+
+        return try {
+            Charset.forName("windows-1252")
+        } catch (e: Exception) {
+            Charsets.ISO_8859_1
+        }
+    }
+
+    companion object {
+        private const val SNIFF_BYTES = 64 * 1024
+    }
+}
@@ -0,0 +1,68 @@
+package com.speedreader.trainer.data.ingest
+
+import com.speedreader.trainer.domain.text.MarkdownStripper
+import java.io.Reader
+
+/**
+ * Cuts the text read from [reader] into segments of exactly [segmentChars]
+ * characters, the last one shorter, stripping Markdown first when [markdown]
+ * is set. A segment only ends early to keep a surrogate pair whole. Cuts
+ * depend on the text alone, never on how much each read returns, so a
+ * resumed extraction can skip segments by count.
+ */
+internal class TextSegments(
+    private val reader: Reader,
+    markdown: Boolean,
+    private val segmentChars: Int = SEGMENT_CHARS
+) {
+    private val buffer = CharArray(BUFFER_CHARS)
+    private val pending = StringBuilder(segmentChars + BUFFER_CHARS)
+    private val stripper = if (markdown) MarkdownStripper() else null
+    private val line = StringBuilder()
+    private var finished = false
+
+    /** The next segment, or null once the text is used up. */
+    fun next(): String? {
+        // One char past the cut, so a pair straddling it is seen whole
+        while (!finished && pending.length <= segmentChars) {
+            val read = reader.read(buffer)
+            if (read < 0) finish() else append(read)
+        }
+        if (pending.isEmpty()) return null
+
+        var end = minOf(segmentChars, pending.length)
+        if (end < pending.length && end > 1 && Character.isHighSurrogate(pending[end - 1])) end--
+        val segment = pending.substring(0, end)
+        pending.delete(0, end)
+        return segment
+    }
+
+    private fun append(read: Int) {
+        if (stripper == null) {
+            pending.appendRange(buffer, 0, read)
+            return
+        }
+        for (i in 0 until read) {
+            val c = buffer[i]
+            if (c == '\n') {
+                stripper.line(line.toString(), pending)
+                line.setLength(0)
+            } else {
+                line.append(c)
+            }
+        }
+    }
+
+    private fun finish() {
+        if (stripper != null) {
+            if (line.isNotEmpty()) stripper.line(line.toString(), pending)
+            stripper.finish(pending)
+        }
+        finished = true
+    }
+
+    companion object {
+        const val SEGMENT_CHARS = 64 * 1024
+        private const val BUFFER_CHARS = 8 * 1024
+    }
+}
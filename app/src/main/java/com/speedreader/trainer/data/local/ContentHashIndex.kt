@@ -0,0 +1,97 @@
+package com.speedreader.trainer.data.local
+
+import android.content.Context
+import android.util.Log
+import dagger.hilt.android.qualifiers.ApplicationContext
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Maps content hashes of imported material to the document built from it:
+ * the hash of the source file's bytes, and the hash of its normalized text.
+ * Lets a re-import of the same file, or of a different file with the same
+ * text, reuse the stored document instead of extracting and uploading again.
+ * Entries are hints; callers check the document still exists before use.
+ */
+@Singleton
+class ContentHashIndex @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+    companion object {
+        private const val FORMAT_VERSION = 1
+        private const val MAGIC = 0x53524849 // "SRHI"
+        private const val SOURCE_PREFIX = "s:"
+        private const val TEXT_PREFIX = "t:"
+    }
+
+    private val file: File
+        get() = File(context.filesDir, "content-hashes")
+
+    // Loaded on first use; small enough to keep and rewrite whole
+    private var entries: HashMap<String, String>? = null
+
+    @Synchronized
+    fun findBySource(sourceHash: String): String? = entries()[SOURCE_PREFIX + sourceHash]
+
+    @Synchronized
+    fun findByText(textHash: String): String? = entries()[TEXT_PREFIX + textHash]
+
+    @Synchronized
+    fun put(sourceHash: String, textHash: String, documentId: String) {
+        val map = entries()
+        map[SOURCE_PREFIX + sourceHash] = documentId
+        map[TEXT_PREFIX + textHash] = documentId
+        save(map)
+    }
+
+    /** Forgets every hash pointing at [documentId]. */
+    @Synchronized
+    fun remove(documentId: String) {
+        val map = entries()
+        if (map.values.removeAll { it == documentId }) save(map)
+    }
+
+    private fun entries(): HashMap<String, String> {
+        entries?.let { return it }
+        val map = HashMap<String, String>()
+        if (file.exists()) {
+            try {
+                DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                    if (input.readInt() == MAGIC && input.readInt() == FORMAT_VERSION) {
+                        repeat(input.readInt()) { map[input.readUTF()] = input.readUTF() }
+                    }
+                }
+            } catch (e: Exception) {
+                Log.w("ContentHashIndex", "Discarding unreadable content hash index", e)
+                map.clear()
+                file.delete()
+            }
+        }
+        entries = map
+        return map
+    }
+
+    private fun save(map: Map<String, String>) {
+        val temp = File(context.filesDir, "content-hashes.tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+                output.writeInt(MAGIC)
+                output.writeInt(FORMAT_VERSION)
+                output.writeInt(map.size)
+                for ((hash, documentId) in map) {
+                    output.writeUTF(hash)
+                    output.writeUTF(documentId)
+                }
+            }
+            if (!temp.renameTo(file)) temp.delete()
+        } catch (e: Exception) {
+            Log.w("ContentHashIndex", "Failed to save content hash index", e)
+            temp.delete()
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.speedreader.trainer.data.local
+
+import android.content.Context
+import android.util.Log
+import dagger.hilt.android.qualifiers.ApplicationContext
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Keeps each document's full text on the device, so its stored segments are
+ * only downloaded once. A file is ignored when its text hash no longer
+ * matches the document's, e.g. after the document was updated elsewhere.
+ */
+@Singleton
+class DocumentTextStore @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+    companion object {
+        private const val FORMAT_VERSION = 1
+        private const val MAGIC = 0x53525458 // "SRTX"
+    }
+
+    private val directory: File
+        get() = File(context.filesDir, "texts").apply { mkdirs() }
+
+    private fun fileFor(documentId: String) = File(directory, "$documentId.txt")
+
+    fun read(documentId: String, textHash: String): String? {
+        val file = fileFor(documentId)
+        if (!file.exists()) return null
+
+        return try {
+            DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) return null
+                if (input.readUTF() != textHash) return null
+                val bytes = ByteArray(input.readInt())
+                input.readFully(bytes)
+                String(bytes, Charsets.UTF_8)
+            }
+        } catch (e: Exception) {
+            Log.w("DocumentTextStore", "Discarding unreadable text for $documentId", e)
+            file.delete()
+            null
+        }
+    }
+
+    fun write(documentId: String, textHash: String, text: String) {
+        val temp = File(directory, "$documentId.txt.tmp")
+        try {
+            val bytes = text.toByteArray(Charsets.UTF_8)
+            DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+                output.writeInt(MAGIC)
+                output.writeInt(FORMAT_VERSION)
+                output.writeUTF(textHash)
+                output.writeInt(bytes.size)
+                output.write(bytes)
+            }
+            if (!temp.renameTo(fileFor(documentId))) temp.delete()
+        } catch (e: Exception) {
+            Log.w("DocumentTextStore", "Failed to save text for $documentId", e)
+            temp.delete()
+        }
+    }
+
+    fun delete(documentId: String) {
+        fileFor(documentId).delete()
+    }
+}
@@ -0,0 +1,112 @@
+package com.speedreader.trainer.data.local
+
+import android.content.Context
+import android.util.Log
+import dagger.hilt.android.qualifiers.ApplicationContext
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/** How far an import got before it was interrupted. */
+data class IngestCheckpoint(
+    val segmentsDone: Int,
+    val pagesDone: Int,
+    val pagesTotal: Int,
+    val textBytes: Long,
+    // Text offsets where chapters begin
+    val chapterOffsets: List<Int>
+)
+
+/**
+ * Saves an import's normalized text segment by segment, so a job killed with
+ * the process resumes from its last finished segment instead of re-extracting
+ * the whole file. Each job has a directory holding the text so far and a
+ * small checkpoint file, which is replaced atomically after each append.
+ * Text past the checkpoint's length is a torn append and is ignored.
+ */
+@Singleton
+class IngestCheckpointStore @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+    companion object {
+        private const val FORMAT_VERSION = 2
+        private const val MAGIC = 0x53524943 // "SRIC"
+    }
+
+    private val root: File
+        get() = File(context.filesDir, "ingest")
+
+    private fun directoryFor(jobId: String) = File(root, jobId)
+
+    /** Ids of every job with a checkpoint on disk. */
+    fun jobIds(): List<String> = root.list()?.toList().orEmpty()
+
+    fun load(jobId: String): IngestCheckpoint? {
+        val file = File(directoryFor(jobId), "checkpoint")
+        if (!file.exists()) return null
+
+        return try {
+            DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) return null
+                val segmentsDone = input.readInt()
+                val pagesDone = input.readInt()
+                val pagesTotal = input.readInt()
+                val textBytes = input.readLong()
+                val chapterOffsets = List(input.readInt()) { input.readInt() }
+                IngestCheckpoint(segmentsDone, pagesDone, pagesTotal, textBytes, chapterOffsets)
+            }
+        } catch (e: Exception) {
+            Log.w("IngestCheckpointStore", "Discarding unreadable checkpoint for $jobId", e)
+            clear(jobId)
+            null
+        }
+    }
+
+    /** Normalized text of every segment covered by [checkpoint]. */
+    fun readText(jobId: String, checkpoint: IngestCheckpoint): String {
+        val bytes = ByteArray(checkpoint.textBytes.toInt())
+        DataInputStream(File(directoryFor(jobId), "text").inputStream()).use { it.readFully(bytes) }
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    /** Appends one segment's text, then records [checkpoint] as the new resume point. */
+    fun append(jobId: String, text: String, checkpoint: (textBytes: Long) -> IngestCheckpoint) {
+        val directory = directoryFor(jobId).apply { mkdirs() }
+        val textFile = File(directory, "text")
+        val previous = load(jobId)?.textBytes ?: 0L
+
+        FileOutputStream(textFile, true).use { output ->
+            // Drop whatever a killed append left past the last checkpoint
+            output.channel.truncate(previous)
+            output.write(text.toByteArray(Charsets.UTF_8))
+        }
+        write(directory, checkpoint(textFile.length()))
+    }
+
+    fun clear(jobId: String) {
+        directoryFor(jobId).deleteRecursively()
+    }
+
+    private fun write(directory: File, checkpoint: IngestCheckpoint) {
+        val temp = File(directory, "checkpoint.tmp")
+        DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+            output.writeInt(MAGIC)
+            output.writeInt(FORMAT_VERSION)
+            output.writeInt(checkpoint.segmentsDone)
+            output.writeInt(checkpoint.pagesDone)
+            output.writeInt(checkpoint.pagesTotal)
+            output.writeLong(checkpoint.textBytes)
+            output.writeInt(checkpoint.chapterOffsets.size)
+            checkpoint.chapterOffsets.forEach { output.writeInt(it) }
+        }
+        if (!temp.renameTo(File(directory, "checkpoint"))) {
+            temp.delete()
+            throw IllegalStateException("Failed to save import checkpoint")
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.speedreader.trainer.data.local
+
+import android.content.Context
+import android.util.Log
+import com.speedreader.trainer.domain.text.TokenStream
+import com.speedreader.trainer.domain.text.Tokenizer
+import dagger.hilt.android.qualifiers.ApplicationContext
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Persists each document's tokenized form (word offsets plus paragraph,
+ * heading and sentence flags) so opening a document skips re-tokenizing.
+ *
+ * Offsets are stored as varint gaps and lengths, usually two or three bytes
+ * per word. A file is ignored when its [FORMAT_VERSION] or
+ * [Tokenizer.RULES_VERSION] is stale or it was built from different content,
+ * and the caller re-tokenizes.
+ */
+@Singleton
+class TokenStore @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+    companion object {
+        /** Bump whenever the file layout changes; tokenizer rules carry their own version. */
+        const val FORMAT_VERSION = 4
+        private const val MAGIC = 0x53525431 // "SRT1"
+    }
+
+    private val directory: File
+        get() = File(context.filesDir, "tokens").apply { mkdirs() }
+
+    private fun fileFor(documentId: String) = File(directory, "$documentId.tok")
+
+    fun read(documentId: String, content: String): TokenStream? {
+        val file = fileFor(documentId)
+        if (!file.exists()) return null
+
+        return try {
+            DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) return null
+                if (input.readInt() != Tokenizer.RULES_VERSION) return null
+                if (input.readInt() != content.length || input.readInt() != content.hashCode()) return null
+
+                val count = input.readInt()
+                val starts = IntArray(count)
+                val ends = IntArray(count)
+                val flags = ByteArray(count)
+                var position = 0
+                for (i in 0 until count) {
+                    starts[i] = position + readVarInt(input)
+                    ends[i] = starts[i] + readVarInt(input)
+                    flags[i] = input.readByte()
+                    position = ends[i]
+                }
+                if (position > content.length) return null
+                TokenStream(content, starts, ends, flags)
+            }
+        } catch (e: Exception) {
+            Log.w("TokenStore", "Discarding unreadable token file for $documentId", e)
+            file.delete()
+            null
+        }
+    }
+
+    fun write(documentId: String, tokens: TokenStream) {
+        val target = fileFor(documentId)
+        val temp = File(directory, "$documentId.tok.tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+                output.writeInt(MAGIC)
+                output.writeInt(FORMAT_VERSION)
+                output.writeInt(Tokenizer.RULES_VERSION)
+                output.writeInt(tokens.text.length)
+                output.writeInt(tokens.text.hashCode())
+                output.writeInt(tokens.size)
+                var position = 0
+                for (i in 0 until tokens.size) {
+                    writeVarInt(output, tokens.start(i) - position)
+                    writeVarInt(output, tokens.end(i) - tokens.start(i))
+                    output.writeByte(tokens.flagsAt(i))
+                    position = tokens.end(i)
+                }
+            }
+            if (!temp.renameTo(target)) temp.delete()
+        } catch (e: Exception) {
+            Log.w("TokenStore", "Failed to persist tokens for $documentId", e)
+            temp.delete()
+        }
+    }
+
+    fun delete(documentId: String) {
+        fileFor(documentId).delete()
+    }
+
+    private fun writeVarInt(output: DataOutputStream, value: Int) {
+        var remaining = value
+        while (remaining and 0x7F.inv() != 0) {
+            output.writeByte((remaining and 0x7F) or 0x80)
+            remaining = remaining ushr 7
+        }
+        output.writeByte(remaining)
+    }
+
+    private fun readVarInt(input: DataInputStream): Int {
+        var result = 0
+        var shift = 0
+        while (true) {
+            val b = input.readByte().toInt()
+            result = result or ((b and 0x7F) shl shift)
+            if (b and 0x80 == 0) return result
+            shift += 7
+        }
+    }
+}
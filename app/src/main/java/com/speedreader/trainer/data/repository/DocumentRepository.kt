@@ -1,36 +1,67 @@
 package com.speedreader.trainer.data.repository
 
-import android.content.Context
 import android.net.Uri
 import com.google.firebase.Timestamp
 import com.google.firebase.auth.FirebaseAuth
 import com.google.firebase.firestore.FirebaseFirestore
 import com.google.firebase.firestore.Query
+import com.speedreader.trainer.data.ingest.IngestionPipeline
+import com.speedreader.trainer.data.ingest.PreviousVersion
+import com.speedreader.trainer.data.local.ContentHashIndex
+import com.speedreader.trainer.data.local.DocumentTextStore
+import com.speedreader.trainer.data.local.TokenStore
+import com.speedreader.trainer.domain.model.DocumentSegment
+import com.speedreader.trainer.domain.model.UploadProgress
 import com.speedreader.trainer.domain.model.UserDocument
-import com.tom_roush.pdfbox.android.PDFBoxResourceLoader
-import com.tom_roush.pdfbox.pdmodel.PDDocument
-import com.tom_roush.pdfbox.text.PDFTextStripper
+import com.speedreader.trainer.domain.reading.ReadingAnchor
+import com.speedreader.trainer.domain.text.StorageSegments
+import com.speedreader.trainer.domain.text.TokenStream
+import com.speedreader.trainer.domain.text.Tokenizer
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.tasks.await
-import java.io.BufferedReader
-import java.io.InputStreamReader
-import java.util.UUID
+import kotlinx.coroutines.withContext
 import javax.inject.Inject
 
+/**
+ * Tokens the reader can start on. Words in [loadedFrom, loadedTo) are the
+ * document's own; the rest are placeholders for segments still downloading,
+ * so word indices already match the complete document.
+ */
+class ReadableTokens(
+    val tokens: TokenStream,
+    val loadedFrom: Int,
+    val loadedTo: Int
+) {
+    val isComplete: Boolean
+        get() = loadedFrom == 0 && loadedTo == tokens.size
+}
+
 class DocumentRepository @Inject constructor(
-    private val context: Context,
     private val firestore: FirebaseFirestore,
-    private val firebaseAuth: FirebaseAuth
+    private val firebaseAuth: FirebaseAuth,
+    private val tokenStore: TokenStore,
+    private val textStore: DocumentTextStore,
+    private val contentHashIndex: ContentHashIndex,
+    private val ingestionPipeline: IngestionPipeline
 ) {
+    companion object {
+        // Keeps a segment batch well under Firestore's 10 MiB request limit
+        private const val MAX_BATCH_CHARS = 2 * 1024 * 1024
+        private const val MAX_BATCH_WRITES = 500
+    }
+
     private val currentUserId: String?
         get() = firebaseAuth.currentUser?.uid
 
-    init {
-        PDFBoxResourceLoader.init(context)
-    }
-
     fun getDocumentsFlow(): Flow<List<UserDocument>> = callbackFlow {
         val userId = currentUserId
         if (userId == null) {
@@ -57,73 +88,291 @@ class DocumentRepository @Inject constructor(
 
     suspend fun getDocument(documentId: String): UserDocument? {
         return try {
-            val doc = firestore.collection("documents").document(documentId).get().await()
-            doc.toObject(UserDocument::class.java)
+            findDocument(documentId)
         } catch (e: Exception) {
             null
         }
     }
 
-    suspend fun uploadDocument(uri: Uri, title: String, fileType: String): Result<UserDocument> {
-        val userId = currentUserId ?: return Result.failure(Exception("Not logged in"))
-        
-        return try {
-            val content = extractText(uri, fileType)
-            val wordCount = content.split("\\s+".toRegex()).filter { it.isNotBlank() }.size
-            
+    /** The document, or null only when it does not exist; a failed lookup throws. */
+    private suspend fun findDocument(documentId: String): UserDocument? {
+        val doc = firestore.collection("documents").document(documentId).get().await()
+        return if (doc.exists()) doc.toObject(UserDocument::class.java) else null
+    }
+
+    /**
+     * Runs the file through the ingestion pipeline as job [jobId], off the
+     * main thread, and stores the result under the job's id, so a resumed or
+     * retried job overwrites its own document. Material this user already
+     * imported completes with the existing document instead. The last
+     * emission is [UploadProgress.Complete]; failures are thrown to the
+     * collector.
+     */
+    fun importDocument(jobId: String, uri: Uri, title: String, fileType: String): Flow<UploadProgress> {
+        val userId = currentUserId ?: return flow { throw Exception("Not logged in") }
+
+        return ingestionPipeline.run(
+            jobId = jobId,
+            uri = uri,
+            fileType = fileType,
+            findExisting = { documentId -> findDocument(documentId)?.takeIf { it.userId == userId } }
+        ) { ingested ->
             val document = UserDocument(
-                id = UUID.randomUUID().toString(),
+                id = jobId,
                 userId = userId,
                 title = title,
-                content = content,
-                wordCount = wordCount,
+                wordCount = ingested.tokens.size,
                 fileType = fileType,
-                uploadedAt = Timestamp.now()
+                uploadedAt = Timestamp.now(),
+                chapterStarts = ingested.chapterStarts,
+                sourceHash = ingested.sourceHash,
+                textHash = ingested.textHash
             )
-            
-            firestore.collection("documents")
-                .document(document.id)
-                .set(document)
-                .await()
-            
-            Result.success(document)
-        } catch (e: Exception) {
-            Result.failure(e)
+            store(document, ingested.tokens)
         }
     }
 
-    private fun extractText(uri: Uri, fileType: String): String {
-        return when (fileType.lowercase()) {
-            "pdf" -> extractPdfText(uri)
-            "txt", "md" -> extractPlainText(uri)
-            else -> throw IllegalArgumentException("Unsupported file type: $fileType")
+    /**
+     * Replaces document [documentId] with a new version of its file as job
+     * [jobId]. Only changed paragraphs are re-tokenized, and the reading
+     * position (the newer of [localProgress] and the stored one) is carried
+     * to the same passage through a [ReadingAnchor].
+     */
+    fun updateDocument(
+        jobId: String,
+        documentId: String,
+        uri: Uri,
+        fileType: String,
+        localProgress: LocalCheckpoint?
+    ): Flow<UploadProgress> = flow {
+        val userId = currentUserId ?: throw Exception("Not logged in")
+        val existing = getDocument(documentId)?.takeIf { it.userId == userId }
+            ?: throw Exception("Document not found")
+        val previous = PreviousVersion(existing, getTokens(existing))
+
+        val remoteSavedAt = existing.lastReadAt?.toDate()?.time ?: 0L
+        val readIndex = if (localProgress != null && localProgress.savedAtMillis > remoteSavedAt) {
+            localProgress.wordIndex
+        } else {
+            existing.lastReadWordIndex
         }
+        val anchor = if (readIndex > 0) ReadingAnchor.at(previous.tokens, readIndex) else null
+
+        emitAll(
+            ingestionPipeline.run(
+                jobId = jobId,
+                uri = uri,
+                fileType = fileType,
+                previous = previous,
+                findExisting = { null }
+            ) { ingested ->
+                val revision = ingested.revision
+                val document = existing.copy(
+                    wordCount = ingested.tokens.size,
+                    fileType = fileType,
+                    chapterStarts = ingested.chapterStarts,
+                    sourceHash = ingested.sourceHash,
+                    textHash = ingested.textHash,
+                    lastReadWordIndex = if (anchor != null && revision != null) {
+                        anchor.resolve(ingested.tokens, revision)
+                    } else {
+                        0
+                    },
+                    // Newer than any local checkpoint, which still counts words of the old text
+                    lastReadAt = if (anchor != null) Timestamp.now() else existing.lastReadAt
+                )
+                store(document, ingested.tokens, existingSegmentIds = existing.segmentIds)
+            }
+        )
     }
 
-    private fun extractPdfText(uri: Uri): String {
-        context.contentResolver.openInputStream(uri)?.use { inputStream ->
-            PDDocument.load(inputStream).use { document ->
-                val stripper = PDFTextStripper()
-                return stripper.getText(document)
+    /**
+     * Writes [document] with its text split into [StorageSegments] in the
+     * document's segments subcollection. Segments are keyed by their hash, so
+     * ones already in [existingSegmentIds] are not uploaded again. The
+     * document goes last, so a reader never sees it before its segments, and
+     * segments it stopped using are deleted after.
+     */
+    private suspend fun store(
+        document: UserDocument,
+        tokens: TokenStream,
+        existingSegmentIds: List<String> = emptyList()
+    ): UserDocument {
+        val text = tokens.text
+        val segments = StorageSegments.split(tokens)
+        val documentRef = firestore.collection("documents").document(document.id)
+        val segmentsRef = documentRef.collection("segments")
+
+        val existing = existingSegmentIds.toHashSet()
+        val written = HashSet<String>()
+        var batch = firestore.batch()
+        var batchChars = 0
+        for (segment in segments) {
+            if (segment.hash in existing || !written.add(segment.hash)) continue
+            val length = segment.end - segment.start
+            if (batchChars > 0 && batchChars + length > MAX_BATCH_CHARS) {
+                batch.commit().await()
+                batch = firestore.batch()
+                batchChars = 0
             }
+            batch.set(
+                segmentsRef.document(segment.hash),
+                DocumentSegment(text.substring(segment.start, segment.end), length, segment.wordCount)
+            )
+            batchChars += length
+        }
+        if (batchChars > 0) batch.commit().await()
+
+        val stored = document.copy(
+            content = "",
+            segmentIds = segments.map { it.hash },
+            segmentWordCounts = segments.map { it.wordCount },
+            contentLength = text.length
+        )
+        documentRef.set(stored).await()
+
+        val unused = existing - stored.segmentIds.toSet()
+        for (ids in unused.chunked(MAX_BATCH_WRITES)) {
+            val cleanup = firestore.batch()
+            ids.forEach { cleanup.delete(segmentsRef.document(it)) }
+            cleanup.commit().await()
+        }
+
+        textStore.write(stored.id, stored.textHash, text)
+        tokenStore.write(stored.id, tokens)
+        return stored
+    }
+
+    /**
+     * The document's tokens, loaded from the local token store when it matches
+     * the current content and format version, otherwise tokenized and stored.
+     * Segments already in [fetched] are not downloaded again.
+     */
+    suspend fun getTokens(
+        document: UserDocument,
+        fetched: Map<String, DocumentSegment> = emptyMap()
+    ): TokenStream = withContext(Dispatchers.IO) {
+        val text = loadText(document, fetched)
+        tokenStore.read(document.id, text)
+            ?: Tokenizer.tokenize(text, IngestionPipeline.marksHeadings(document.fileType))
+                .also { tokenStore.write(document.id, it) }
+    }
+
+    /**
+     * The document's tokens for reading from word [wordIndex]. When the text
+     * has to be downloaded, the segment holding that word and its neighbours
+     * are fetched first and emitted as a partial [ReadableTokens], so reading
+     * starts while the other segments load; the complete tokens always come
+     * last. Documents whose text is local, or stored without per-segment word
+     * counts, emit only the complete tokens.
+     */
+    fun readableTokens(document: UserDocument, wordIndex: Int): Flow<ReadableTokens> = flow {
+        val counts = document.segmentWordCounts
+        var fetched = emptyMap<String, DocumentSegment>()
+        if (document.segmentIds.isNotEmpty() && counts.size == document.segmentIds.size &&
+            textStore.read(document.id, document.textHash) == null
+        ) {
+            val window = segmentsAround(counts, wordIndex)
+            fetched = fetchSegments(document, window.map { document.segmentIds[it] })
+            windowTokens(document, window, fetched)?.let { emit(it) }
+        }
+        val tokens = getTokens(document, fetched)
+        emit(ReadableTokens(tokens, 0, tokens.size))
+    }.flowOn(Dispatchers.IO)
+
+    /** Index range of the segment holding word [wordIndex] and the segments either side of it. */
+    private fun segmentsAround(counts: List<Int>, wordIndex: Int): IntRange {
+        var segment = 0
+        var before = 0
+        while (segment < counts.lastIndex && before + counts[segment] <= wordIndex) {
+            before += counts[segment]
+            segment++
+        }
+        return (segment - 1).coerceAtLeast(0)..(segment + 1).coerceAtMost(counts.lastIndex)
+    }
+
+    /**
+     * Tokens of the segments in [window], placed at their word index in the
+     * whole document. Null when they don't tokenize alone to the word count
+     * they were stored with (a segment can pick another segmenter than the
+     * whole text), in which case the reader waits for the full text.
+     */
+    private fun windowTokens(
+        document: UserDocument,
+        window: IntRange,
+        fetched: Map<String, DocumentSegment>
+    ): ReadableTokens? {
+        val text = StringBuilder()
+        var expected = 0
+        for (i in window) {
+            val segment = fetched.getValue(document.segmentIds[i])
+            text.append(segment.text)
+            expected += segment.wordCount
+        }
+        val tokens = Tokenizer.tokenize(text.toString(), IngestionPipeline.marksHeadings(document.fileType))
+        if (tokens.size != expected) return null
+
+        val counts = document.segmentWordCounts
+        val before = (0 until window.first).sumOf { counts[it] }
+        return ReadableTokens(tokens.padded(before, counts.sum()), before, before + tokens.size)
+    }
+
+    /** Downloads the segments [ids] in parallel, checking each against its stored length. */
+    private suspend fun fetchSegments(document: UserDocument, ids: List<String>): Map<String, DocumentSegment> {
+        val segmentsRef = firestore.collection("documents").document(document.id).collection("segments")
+        return coroutineScope {
+            ids.distinct().map { id ->
+                async {
+                    val segment = segmentsRef.document(id).get().await().toObject(DocumentSegment::class.java)
+                        ?: throw Exception("Document content is missing")
+                    if (segment.text.length != segment.charLength) throw Exception("Document content is incomplete")
+                    id to segment
+                }
+            }.awaitAll().toMap()
         }
-        throw Exception("Failed to read PDF file")
     }
 
-    private fun extractPlainText(uri: Uri): String {
-        context.contentResolver.openInputStream(uri)?.use { inputStream ->
-            val reader = BufferedReader(InputStreamReader(inputStream))
-            return reader.readText()
+    /**
+     * Full text of [document]: inline for documents stored before segments,
+     * otherwise the local copy, or the segments not already in [fetched]
+     * downloaded in parallel and then kept locally.
+     */
+    private suspend fun loadText(
+        document: UserDocument,
+        fetched: Map<String, DocumentSegment> = emptyMap()
+    ): String {
+        if (document.segmentIds.isEmpty()) return document.content
+        textStore.read(document.id, document.textHash)?.let { return it }
+
+        val segments = fetched + fetchSegments(document, document.segmentIds.filterNot { it in fetched })
+        val text = StringBuilder(document.contentLength)
+        for (id in document.segmentIds) {
+            text.append(segments.getValue(id).text)
         }
-        throw Exception("Failed to read text file")
+        if (text.length != document.contentLength) throw Exception("Document content is incomplete")
+        return text.toString().also { textStore.write(document.id, document.textHash, it) }
     }
 
     suspend fun deleteDocument(documentId: String): Result<Unit> {
         return try {
-            firestore.collection("documents")
-                .document(documentId)
-                .delete()
-                .await()
+            val documentRef = firestore.collection("documents").document(documentId)
+
+            // Subcollections outlive their parent unless deleted one by one.
+            // The parent goes last, in the final batch, so a delete that fails
+            // part way leaves a listed document to retry, never orphaned segments
+            val segments = documentRef.collection("segments").get().await().documents
+            val chunks = segments.chunked(MAX_BATCH_WRITES - 1)
+            for ((index, chunk) in chunks.withIndex()) {
+                val batch = firestore.batch()
+                chunk.forEach { batch.delete(it.reference) }
+                if (index == chunks.lastIndex) batch.delete(documentRef)
+                batch.commit().await()
+            }
+            if (chunks.isEmpty()) documentRef.delete().await()
+
+            tokenStore.delete(documentId)
+            textStore.delete(documentId)
+            contentHashIndex.remove(documentId)
             Result.success(Unit)
         } catch (e: Exception) {
             Result.failure(e)
@@ -0,0 +1,189 @@
+package com.speedreader.trainer.data.repository
+
+import android.content.Context
+import android.content.Intent
+import android.net.Uri
+import android.util.Log
+import androidx.work.BackoffPolicy
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkInfo
+import androidx.work.WorkManager
+import androidx.work.workDataOf
+import com.speedreader.trainer.data.local.IngestCheckpointStore
+import com.speedreader.trainer.data.work.IngestionWorker
+import com.speedreader.trainer.domain.model.ImportJob
+import com.speedreader.trainer.domain.model.IngestStage
+import com.speedreader.trainer.domain.model.UserDocument
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Queues document imports as WorkManager jobs, which are persisted and
+ * rescheduled after process death, and reports them as [ImportJob]s.
+ * At most the user's max concurrent imports run at once; the rest wait for
+ * a slot inside their worker. Slots are read from WorkManager's own work
+ * state, so the count survives process death along with the jobs.
+ */
+@Singleton
+class IngestionJobRepository @Inject constructor(
+    @ApplicationContext private val context: Context,
+    private val workManager: WorkManager,
+    private val settingsRepository: SettingsRepository,
+    private val checkpointStore: IngestCheckpointStore
+) {
+    companion object {
+        private const val TAG = "ingestion"
+        private const val TITLE_TAG_PREFIX = "title:"
+
+        /** The pipeline's file type for [fileName], or "" when it is not supported. */
+        fun fileTypeFor(fileName: String): String = when {
+            fileName.endsWith(".pdf", ignoreCase = true) -> "pdf"
+            fileName.endsWith(".txt", ignoreCase = true) -> "txt"
+            fileName.endsWith(".md", ignoreCase = true) -> "md"
+            fileName.endsWith(".epub", ignoreCase = true) -> "epub"
+            else -> ""
+        }
+    }
+
+    // Serializes checking for a free slot and claiming it between this process's workers
+    private val slotLock = Mutex()
+
+    /** Queues an import of [uri] and returns the job's id. */
+    fun enqueue(uri: Uri, title: String, fileType: String): String =
+        enqueue(uri, title, fileType, updateOf = null)
+
+    /** Queues replacing [document] with a new version of its file and returns the job's id. */
+    fun enqueueUpdate(document: UserDocument, uri: Uri, fileType: String): String =
+        enqueue(uri, document.title, fileType, updateOf = document.id)
+
+    private fun enqueue(uri: Uri, title: String, fileType: String, updateOf: String?): String {
+        try {
+            // The job may run after the picker's temporary grant is gone
+            context.contentResolver.takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION)
+        } catch (e: SecurityException) {
+            Log.w("IngestionJobRepository", "No persistable permission for $uri", e)
+        }
+
+        val request = OneTimeWorkRequestBuilder<IngestionWorker>()
+            .setInputData(
+                workDataOf(
+                    IngestionWorker.KEY_URI to uri.toString(),
+                    IngestionWorker.KEY_TITLE to title,
+                    IngestionWorker.KEY_FILE_TYPE to fileType,
+                    IngestionWorker.KEY_UPDATE_OF to updateOf
+                )
+            )
+            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+            .addTag(TAG)
+            .addTag(TITLE_TAG_PREFIX + title)
+            .build()
+        workManager.enqueue(request)
+        return request.id.toString()
+    }
+
+    fun jobFlow(jobId: String): Flow<ImportJob?> =
+        workManager.getWorkInfoByIdFlow(UUID.fromString(jobId)).map { info -> info?.let(::toImportJob) }
+
+    /** Imports that are queued or running. */
+    fun activeJobsFlow(): Flow<List<ImportJob>> =
+        workManager.getWorkInfosByTagFlow(TAG).map { infos ->
+            infos.map(::toImportJob).filterNot { it.isFinished }
+        }
+
+    /**
+     * Cancels the job. Cancelling is asynchronous, so a running worker
+     * clears its own checkpoint once it has stopped; see [pruneCheckpoints]
+     * for jobs that were not running.
+     */
+    fun cancel(jobId: String) {
+        workManager.cancelWorkById(UUID.fromString(jobId))
+    }
+
+    /** Whether the job was cancelled, as opposed to stopped by the system to run again later. */
+    suspend fun isCancelled(jobId: String): Boolean =
+        workManager.getWorkInfoByIdFlow(UUID.fromString(jobId)).first()?.state == WorkInfo.State.CANCELLED
+
+    /**
+     * Clears checkpoints whose job has finished without cleaning up after
+     * itself, such as one cancelled while it waited to retry.
+     */
+    suspend fun pruneCheckpoints() {
+        val unfinished = workManager.getWorkInfosByTagFlow(TAG).first()
+            .filterNot { it.state.isFinished }
+            .mapTo(HashSet()) { it.id.toString() }
+        checkpointStore.jobIds().filterNot { it in unfinished }.forEach(checkpointStore::clear)
+    }
+
+    /** Gives up the read grant taken in [enqueue] once a job no longer needs it. */
+    fun releaseSource(uri: Uri) {
+        try {
+            context.contentResolver.releasePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION)
+        } catch (e: SecurityException) {
+            // Never had a persistable grant
+        }
+    }
+
+    /**
+     * Runs [block] for job [jobId] once fewer than the configured number of
+     * imports hold a slot. A running job holds one while its progress has
+     * [IngestionWorker.KEY_HOLDS_SLOT] set; [claim] sets or clears that flag
+     * on the calling worker and must not return before the progress is
+     * stored. The slot frees itself when the job stops running.
+     */
+    suspend fun <T> withSlot(jobId: String, claim: suspend (Boolean) -> Unit, block: suspend () -> T): T {
+        val self = UUID.fromString(jobId)
+        // A run restarted after process death may still show the old run's flag
+        claim(false)
+        while (true) {
+            combine(workManager.getWorkInfosByTagFlow(TAG), settingsRepository.maxConcurrentImportsFlow) { infos, max ->
+                slotsTaken(infos, self) < max
+            }.first { it }
+
+            val claimed = slotLock.withLock {
+                val infos = workManager.getWorkInfosByTagFlow(TAG).first()
+                val max = settingsRepository.maxConcurrentImportsFlow.first()
+                (slotsTaken(infos, self) < max).also { free -> if (free) claim(true) }
+            }
+            if (claimed) break
+        }
+        return block()
+    }
+
+    private fun slotsTaken(infos: List<WorkInfo>, self: UUID): Int =
+        infos.count { info ->
+            info.id != self && info.state == WorkInfo.State.RUNNING &&
+                info.progress.getBoolean(IngestionWorker.KEY_HOLDS_SLOT, false)
+        }
+
+    private fun toImportJob(info: WorkInfo): ImportJob {
+        val state = when (info.state) {
+            WorkInfo.State.ENQUEUED, WorkInfo.State.BLOCKED -> ImportJob.State.QUEUED
+            WorkInfo.State.RUNNING -> ImportJob.State.RUNNING
+            WorkInfo.State.SUCCEEDED -> ImportJob.State.SUCCEEDED
+            WorkInfo.State.FAILED -> ImportJob.State.FAILED
+            WorkInfo.State.CANCELLED -> ImportJob.State.CANCELLED
+        }
+        val stage = info.progress.getString(IngestionWorker.KEY_STAGE)
+            ?.let { name -> IngestStage.values().firstOrNull { it.name == name } }
+        return ImportJob(
+            id = info.id.toString(),
+            title = info.tags.firstOrNull { it.startsWith(TITLE_TAG_PREFIX) }
+                ?.removePrefix(TITLE_TAG_PREFIX).orEmpty(),
+            state = state,
+            stage = stage,
+            pagesDone = info.progress.getInt(IngestionWorker.KEY_PAGES_DONE, 0),
+            pagesTotal = info.progress.getInt(IngestionWorker.KEY_PAGES_TOTAL, 0),
+            documentId = info.outputData.getString(IngestionWorker.KEY_DOCUMENT_ID),
+            error = info.outputData.getString(IngestionWorker.KEY_ERROR)
+        )
+    }
+}
@@ -0,0 +1,116 @@
+package com.speedreader.trainer.data.repository
+
+import android.content.Context
+import android.os.SystemClock
+import android.util.Log
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.edit
+import androidx.datastore.preferences.core.intPreferencesKey
+import androidx.datastore.preferences.core.longPreferencesKey
+import androidx.datastore.preferences.preferencesDataStore
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+import javax.inject.Inject
+import javax.inject.Singleton
+
+private val Context.progressStore: DataStore<Preferences> by preferencesDataStore(name = "reading_progress")
+
+data class LocalCheckpoint(
+    val wordIndex: Int,
+    val savedAtMillis: Long
+)
+
+/**
+ * Records the reading cursor locally on every checkpoint and coalesces the
+ * matching Firestore `lastReadWordIndex` writes: a remote write goes out once
+ * checkpoints have been quiet for [DEBOUNCE_MS], or at most [MAX_INTERVAL_MS]
+ * after the first unsent checkpoint.
+ */
+@Singleton
+class ReadingProgressRepository @Inject constructor(
+    @ApplicationContext private val context: Context,
+    private val documentRepository: DocumentRepository
+) {
+    companion object {
+        private const val DEBOUNCE_MS = 5_000L
+        private const val MAX_INTERVAL_MS = 30_000L
+
+        private fun indexKey(documentId: String) = intPreferencesKey("index_$documentId")
+        private fun savedAtKey(documentId: String) = longPreferencesKey("saved_at_$documentId")
+    }
+
+    private class PendingWrite(
+        var wordIndex: Int,
+        val firstDirtyAt: Long,
+        var job: Job? = null
+    )
+
+    // Pending state is confined to the main thread; the writes themselves suspend
+    // off-thread. The scope outlives any one ViewModel so a flush from onCleared
+    // still completes.
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Main.immediate)
+    private val pending = mutableMapOf<String, PendingWrite>()
+
+    suspend fun getLocalCheckpoint(documentId: String): LocalCheckpoint? {
+        val preferences = context.progressStore.data.first()
+        val index = preferences[indexKey(documentId)] ?: return null
+        return LocalCheckpoint(index, preferences[savedAtKey(documentId)] ?: 0L)
+    }
+
+    fun checkpoint(documentId: String, wordIndex: Int) {
+        writeLocal(documentId, wordIndex)
+
+        val now = SystemClock.elapsedRealtime()
+        val write = pending.getOrPut(documentId) { PendingWrite(wordIndex, now) }
+        write.wordIndex = wordIndex
+        write.job?.cancel()
+
+        val wait = minOf(DEBOUNCE_MS, MAX_INTERVAL_MS - (now - write.firstDirtyAt)).coerceAtLeast(0)
+        write.job = scope.launch {
+            delay(wait)
+            pushRemote(documentId)
+        }
+    }
+
+    /** Records [wordIndex] and sends it to Firestore without waiting for the debounce. */
+    fun flush(documentId: String, wordIndex: Int) {
+        if (documentId.isEmpty()) return
+        writeLocal(documentId, wordIndex)
+        pending.getOrPut(documentId) { PendingWrite(wordIndex, SystemClock.elapsedRealtime()) }.apply {
+            this.wordIndex = wordIndex
+            job?.cancel()
+        }
+        scope.launch { pushRemote(documentId) }
+    }
+
+    suspend fun reset(documentId: String) {
+        pending.remove(documentId)?.job?.cancel()
+        context.progressStore.edit { preferences ->
+            preferences.remove(indexKey(documentId))
+            preferences.remove(savedAtKey(documentId))
+        }
+        documentRepository.resetReadingProgress(documentId)
+    }
+
+    private fun writeLocal(documentId: String, wordIndex: Int) {
+        scope.launch {
+            context.progressStore.edit { preferences ->
+                preferences[indexKey(documentId)] = wordIndex
+                preferences[savedAtKey(documentId)] = System.currentTimeMillis()
+            }
+        }
+    }
+
+    private suspend fun pushRemote(documentId: String) {
+        val write = pending.remove(documentId) ?: return
+        documentRepository.updateReadingProgress(documentId, write.wordIndex)
+            .onFailure { Log.w("ReadingProgress", "Remote progress write failed; local checkpoint kept", it) }
+    }
+}
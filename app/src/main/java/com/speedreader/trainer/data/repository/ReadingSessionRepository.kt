@@ -9,7 +9,9 @@ import com.speedreader.trainer.data.remote.ChatCompletionRequest
 import com.speedreader.trainer.data.remote.ChatMessage
 import com.speedreader.trainer.data.remote.OpenAIService
 import com.speedreader.trainer.domain.model.ComprehensionQuestion
+import com.speedreader.trainer.domain.model.DisplayTimingSummary
 import com.speedreader.trainer.domain.model.ReadingSession
+import com.speedreader.trainer.domain.text.Tokenizer
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.Flow
@@ -134,7 +136,12 @@ class ReadingSessionRepository @Inject constructor(
         documentTitle: String,
         wpmUsed: Int,
         wordsRead: Int,
-        durationSeconds: Int
+        durationSeconds: Int,
+        pausedSeconds: Int = 0,
+        wordsDisplayed: Int = 0,
+        effectiveWpm: Int = 0,
+        meanJitterMs: Float = 0f,
+        displayTiming: DisplayTimingSummary = DisplayTimingSummary()
     ): String {
         val sessionId = UUID.randomUUID().toString()
         pendingSession = ReadingSession(
@@ -145,6 +152,14 @@ class ReadingSessionRepository @Inject constructor(
             wpmUsed = wpmUsed,
             wordsRead = wordsRead,
             durationSeconds = durationSeconds,
+            pausedSeconds = pausedSeconds,
+            wordsDisplayed = wordsDisplayed,
+            effectiveWpm = effectiveWpm,
+            meanJitterMs = meanJitterMs,
+            jitterP50Ms = displayTiming.p50JitterMs,
+            jitterP95Ms = displayTiming.p95JitterMs,
+            jitterP99Ms = displayTiming.p99JitterMs,
+            missedFrames = displayTiming.missedFrames,
             completedAt = Timestamp.now()
         )
         return sessionId
@@ -223,7 +238,7 @@ class ReadingSessionRepository @Inject constructor(
         Log.d("ReadingSession", "Generating questions for text of length: ${text.length}")
         
         // Calculate number of questions based on text length
-        val wordCount = text.split("\\s+".toRegex()).filter { it.isNotBlank() }.size
+        val wordCount = Tokenizer.countWords(text)
         val questionCount = when {
             wordCount < 150 -> 3
             wordCount < 300 -> 4
@@ -26,6 +26,8 @@ class SettingsRepository @Inject constructor(
         private val DEFAULT_FONT_SIZE_KEY = intPreferencesKey("default_font_size")
         private val CHUNKING_ENABLED_KEY = booleanPreferencesKey("chunking_enabled")
         private val DEFAULT_CHUNK_SIZE_KEY = intPreferencesKey("default_chunk_size")
+        private val PARAGRAPH_PAUSE_KEY = intPreferencesKey("paragraph_pause")
+        private val MAX_CONCURRENT_IMPORTS_KEY = intPreferencesKey("max_concurrent_imports")
     }
 
     val darkModeFlow: Flow<Boolean> = context.dataStore.data.map { preferences ->
@@ -52,6 +54,14 @@ class SettingsRepository @Inject constructor(
         preferences[DEFAULT_CHUNK_SIZE_KEY] ?: 2
     }
 
+    val paragraphPauseFlow: Flow<Int> = context.dataStore.data.map { preferences ->
+        preferences[PARAGRAPH_PAUSE_KEY] ?: 2
+    }
+
+    val maxConcurrentImportsFlow: Flow<Int> = context.dataStore.data.map { preferences ->
+        preferences[MAX_CONCURRENT_IMPORTS_KEY] ?: 2
+    }
+
     suspend fun setDarkMode(enabled: Boolean) {
         context.dataStore.edit { preferences ->
             preferences[DARK_MODE_KEY] = enabled
@@ -88,5 +98,16 @@ class SettingsRepository @Inject constructor(
             preferences[DEFAULT_CHUNK_SIZE_KEY] = size
         }
     }
-}
 
+    suspend fun setParagraphPause(words: Int) {
+        context.dataStore.edit { preferences ->
+            preferences[PARAGRAPH_PAUSE_KEY] = words
+        }
+    }
+
+    suspend fun setMaxConcurrentImports(max: Int) {
+        context.dataStore.edit { preferences ->
+            preferences[MAX_CONCURRENT_IMPORTS_KEY] = max
+        }
+    }
+}
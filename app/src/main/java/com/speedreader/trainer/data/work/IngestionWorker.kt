@@ -0,0 +1,141 @@
+package com.speedreader.trainer.data.work
+
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import androidx.hilt.work.HiltWorker
+import androidx.work.CoroutineWorker
+import androidx.work.WorkerParameters
+import androidx.work.workDataOf
+import com.google.firebase.firestore.FirebaseFirestoreException
+import com.speedreader.trainer.data.local.IngestCheckpointStore
+import com.speedreader.trainer.data.repository.DocumentRepository
+import com.speedreader.trainer.data.repository.IngestionJobRepository
+import com.speedreader.trainer.data.repository.ReadingProgressRepository
+import com.speedreader.trainer.domain.model.UploadProgress
+import dagger.assisted.Assisted
+import dagger.assisted.AssistedInject
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.withContext
+import java.io.IOException
+
+/**
+ * Runs one import in the background so it outlives the screen that started
+ * it. The job's id doubles as the document id and the checkpoint key, so a
+ * run restarted after process death picks up its own checkpoint and
+ * overwrites rather than duplicates the stored document. A job with
+ * [KEY_UPDATE_OF] replaces that document with a new version instead.
+ */
+@HiltWorker
+class IngestionWorker @AssistedInject constructor(
+    @Assisted context: Context,
+    @Assisted params: WorkerParameters,
+    private val documentRepository: DocumentRepository,
+    private val jobRepository: IngestionJobRepository,
+    private val progressRepository: ReadingProgressRepository,
+    private val checkpointStore: IngestCheckpointStore
+) : CoroutineWorker(context, params) {
+
+    override suspend fun doWork(): Result {
+        val uri = inputData.getString(KEY_URI)?.let(Uri::parse)
+            ?: return Result.failure(workDataOf(KEY_ERROR to "Missing file"))
+        val title = inputData.getString(KEY_TITLE).orEmpty()
+        val fileType = inputData.getString(KEY_FILE_TYPE).orEmpty()
+        val updateOf = inputData.getString(KEY_UPDATE_OF)
+        val jobId = id.toString()
+
+        jobRepository.pruneCheckpoints()
+        val claimSlot: suspend (Boolean) -> Unit = { holds -> setProgress(workDataOf(KEY_HOLDS_SLOT to holds)) }
+        return try {
+            jobRepository.withSlot(jobId, claimSlot) {
+                var documentId: String? = null
+                var stage = ""
+                var pagesDone = 0
+                var pagesTotal = 0
+                val progressFlow = if (updateOf != null) {
+                    val localProgress = progressRepository.getLocalCheckpoint(updateOf)
+                    documentRepository.updateDocument(jobId, updateOf, uri, fileType, localProgress)
+                } else {
+                    documentRepository.importDocument(jobId, uri, title, fileType)
+                }
+                progressFlow.collect { progress ->
+                    when (progress) {
+                        is UploadProgress.Working -> stage = progress.stage.name
+                        is UploadProgress.Extracting -> {
+                            pagesDone = progress.pagesDone
+                            pagesTotal = progress.pagesTotal
+                        }
+                        is UploadProgress.Complete -> documentId = progress.document.id
+                    }
+                    // Progress data replaces the previous one, so always send all of it
+                    setProgress(
+                        workDataOf(
+                            KEY_HOLDS_SLOT to true,
+                            KEY_STAGE to stage,
+                            KEY_PAGES_DONE to pagesDone,
+                            KEY_PAGES_TOTAL to pagesTotal
+                        )
+                    )
+                }
+                jobRepository.releaseSource(uri)
+                Result.success(workDataOf(KEY_DOCUMENT_ID to documentId))
+            }
+        } catch (e: Exception) {
+            if (e is CancellationException || isStopped) stopped(jobId, uri, e)
+            Log.w("IngestionWorker", "Import $jobId failed, attempt $runAttemptCount", e)
+            // The checkpoint keeps what was done for the next attempt
+            when {
+                isOffline(e) -> Result.retry()
+                e is IOException && runAttemptCount < MAX_ATTEMPTS -> Result.retry()
+                else -> fail(jobId, uri, e)
+            }
+        }
+    }
+
+    /**
+     * Firestore could not reach the server. That lasts as long as the device
+     * is offline, so it is retried without using up [MAX_ATTEMPTS].
+     */
+    private fun isOffline(e: Exception): Boolean =
+        e is FirebaseFirestoreException &&
+            (e.code == FirebaseFirestoreException.Code.UNAVAILABLE ||
+                e.code == FirebaseFirestoreException.Code.DEADLINE_EXCEEDED)
+
+    /**
+     * Cleans up after a job the user cancelled. By now the pipeline has
+     * stopped (collecting it only returns once its stages have), so nothing
+     * can write the checkpoint again. A job the system stopped keeps its
+     * checkpoint for the next run.
+     */
+    private suspend fun stopped(jobId: String, uri: Uri, e: Exception): Nothing {
+        withContext(NonCancellable) {
+            if (jobRepository.isCancelled(jobId)) {
+                checkpointStore.clear(jobId)
+                jobRepository.releaseSource(uri)
+            }
+        }
+        throw e
+    }
+
+    private fun fail(jobId: String, uri: Uri, e: Exception): Result {
+        checkpointStore.clear(jobId)
+        jobRepository.releaseSource(uri)
+        return Result.failure(workDataOf(KEY_ERROR to (e.message ?: "Upload failed")))
+    }
+
+    companion object {
+        const val KEY_URI = "uri"
+        const val KEY_TITLE = "title"
+        const val KEY_FILE_TYPE = "file_type"
+        const val KEY_UPDATE_OF = "update_of"
+        const val KEY_HOLDS_SLOT = "holds_slot"
+        const val KEY_STAGE = "stage"
+        const val KEY_PAGES_DONE = "pages_done"
+        const val KEY_PAGES_TOTAL = "pages_total"
+        const val KEY_DOCUMENT_ID = "document_id"
+        const val KEY_ERROR = "error"
+
+        private const val MAX_ATTEMPTS = 3
+    }
+}
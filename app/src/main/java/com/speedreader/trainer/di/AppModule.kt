@@ -1,9 +1,14 @@
 package com.speedreader.trainer.di
 
 import android.content.Context
+import androidx.work.WorkManager
 import com.google.firebase.auth.FirebaseAuth
 import com.google.firebase.firestore.FirebaseFirestore
 import com.speedreader.trainer.BuildConfig
+import com.speedreader.trainer.data.ingest.IngestionPipeline
+import com.speedreader.trainer.data.local.ContentHashIndex
+import com.speedreader.trainer.data.local.DocumentTextStore
+import com.speedreader.trainer.data.local.TokenStore
 import com.speedreader.trainer.data.remote.OpenAIService
 import com.speedreader.trainer.data.repository.AuthRepository
 import com.speedreader.trainer.data.repository.DocumentRepository
@@ -14,11 +19,15 @@ import dagger.Provides
 import dagger.hilt.InstallIn
 import dagger.hilt.android.qualifiers.ApplicationContext
 import dagger.hilt.components.SingletonComponent
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.asCoroutineDispatcher
 import okhttp3.OkHttpClient
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
+import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import javax.inject.Singleton
 
 @Module
@@ -82,10 +91,33 @@ object AppModule {
     @Provides
     @Singleton
     fun provideDocumentRepository(
-        @ApplicationContext context: Context,
         firestore: FirebaseFirestore,
-        firebaseAuth: FirebaseAuth
-    ): DocumentRepository = DocumentRepository(context, firestore, firebaseAuth)
+        firebaseAuth: FirebaseAuth,
+        tokenStore: TokenStore,
+        textStore: DocumentTextStore,
+        contentHashIndex: ContentHashIndex,
+        ingestionPipeline: IngestionPipeline
+    ): DocumentRepository =
+        DocumentRepository(firestore, firebaseAuth, tokenStore, textStore, contentHashIndex, ingestionPipeline)
+
+    @Provides
+    @Singleton
+    @IngestDispatcher
+    fun provideIngestDispatcher(): CoroutineDispatcher {
+        // Enough threads for the parallel PDF workers, never more than the device has cores
+        val threads = Runtime.getRuntime().availableProcessors().coerceIn(2, 4)
+        val counter = AtomicInteger()
+        return Executors.newFixedThreadPool(threads) { runnable ->
+            Thread(runnable, "ingest-${counter.incrementAndGet()}").apply {
+                priority = Thread.NORM_PRIORITY - 1
+            }
+        }.asCoroutineDispatcher()
+    }
+
+    @Provides
+    @Singleton
+    fun provideWorkManager(@ApplicationContext context: Context): WorkManager =
+        WorkManager.getInstance(context)
 
     @Provides
     @Singleton
@@ -0,0 +1,8 @@
+package com.speedreader.trainer.di
+
+import javax.inject.Qualifier
+
+/** The bounded thread pool that every document ingestion stage runs on. */
+@Qualifier
+@Retention(AnnotationRetention.BINARY)
+annotation class IngestDispatcher
@@ -0,0 +1,9 @@
+package com.speedreader.trainer.domain.model
+
+data class DisplayTimingSummary(
+    val p50JitterMs: Float = 0f,
+    val p95JitterMs: Float = 0f,
+    val p99JitterMs: Float = 0f,
+    val chunksMeasured: Int = 0,
+    val missedFrames: Int = 0
+)
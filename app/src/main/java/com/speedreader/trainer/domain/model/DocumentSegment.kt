@@ -0,0 +1,12 @@
+package com.speedreader.trainer.domain.model
+
+/**
+ * One slice of a document's text, stored at
+ * documents/{documentId}/segments/{hash of text}. [charLength] and
+ * [wordCount] let a reader check a slice it fetched on its own.
+ */
+data class DocumentSegment(
+    val text: String = "",
+    val charLength: Int = 0,
+    val wordCount: Int = 0
+)
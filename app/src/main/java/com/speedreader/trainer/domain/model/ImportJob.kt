@@ -0,0 +1,24 @@
+package com.speedreader.trainer.domain.model
+
+/** A queued or running document import, as reported by its background job. */
+data class ImportJob(
+    val id: String,
+    val title: String,
+    val state: State,
+    val stage: IngestStage? = null,
+    val pagesDone: Int = 0,
+    val pagesTotal: Int = 0,
+    val documentId: String? = null,
+    val error: String? = null
+) {
+    enum class State {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+
+    val isFinished: Boolean
+        get() = state == State.SUCCEEDED || state == State.FAILED || state == State.CANCELLED
+}
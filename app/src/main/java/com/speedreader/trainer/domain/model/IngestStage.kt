@@ -0,0 +1,9 @@
+package com.speedreader.trainer.domain.model
+
+enum class IngestStage {
+    READ,
+    EXTRACT,
+    NORMALIZE,
+    TOKENIZE,
+    PERSIST
+}
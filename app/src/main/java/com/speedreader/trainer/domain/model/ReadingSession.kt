@@ -12,6 +12,14 @@ data class ReadingSession(
     val comprehensionScore: Float = 0f,
     val hasQuiz: Boolean = true,
     val durationSeconds: Int = 0,
+    val pausedSeconds: Int = 0,
+    val wordsDisplayed: Int = 0,
+    val effectiveWpm: Int = 0,
+    val meanJitterMs: Float = 0f,
+    val jitterP50Ms: Float = 0f,
+    val jitterP95Ms: Float = 0f,
+    val jitterP99Ms: Float = 0f,
+    val missedFrames: Int = 0,
     val completedAt: Timestamp = Timestamp.now()
 )
 
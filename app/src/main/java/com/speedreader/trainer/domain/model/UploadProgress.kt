@@ -0,0 +1,7 @@
+package com.speedreader.trainer.domain.model
+
+sealed class UploadProgress {
+    data class Working(val stage: IngestStage) : UploadProgress()
+    data class Extracting(val pagesDone: Int, val pagesTotal: Int) : UploadProgress()
+    data class Complete(val document: UserDocument) : UploadProgress()
+}
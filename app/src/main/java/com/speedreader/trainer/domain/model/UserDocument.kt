@@ -6,12 +6,22 @@ data class UserDocument(
     val id: String = "",
     val userId: String = "",
     val title: String = "",
+    // Inline text of documents stored before segments; empty otherwise
     val content: String = "",
     val wordCount: Int = 0,
     val fileType: String = "",
     val uploadedAt: Timestamp = Timestamp.now(),
     val lastReadWordIndex: Int = 0,
-    val lastReadAt: Timestamp? = null
+    val lastReadAt: Timestamp? = null,
+    // Word indices where EPUB chapters begin
+    val chapterStarts: List<Int> = emptyList(),
+    // SHA-256 of the uploaded file and of its normalized text
+    val sourceHash: String = "",
+    val textHash: String = "",
+    // Ids of the text's segments in reading order, the words in each, and the text's length
+    val segmentIds: List<String> = emptyList(),
+    val segmentWordCounts: List<Int> = emptyList(),
+    val contentLength: Int = 0
 ) {
     val hasProgress: Boolean
         get() = lastReadWordIndex > 0
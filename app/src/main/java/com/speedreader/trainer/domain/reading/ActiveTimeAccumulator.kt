@@ -0,0 +1,56 @@
+package com.speedreader.trainer.domain.reading
+
+/**
+ * Splits a reading session's monotonic time into active (playing) and paused
+ * spans, starting from the first play. Dialogs, scrubbing and time in the
+ * background all land in the paused bucket instead of inflating reading time.
+ */
+class ActiveTimeAccumulator(
+    private val nanoClock: () -> Long = System::nanoTime
+) {
+    private var firstPlayNanos = NOT_STARTED
+    private var segmentStartNanos = 0L
+    private var completedActiveNanos = 0L
+    private var playing = false
+
+    var wordsDisplayed = 0L
+        private set
+
+    val isPlaying: Boolean
+        get() = playing
+
+    fun resume() {
+        if (playing) return
+        val now = nanoClock()
+        if (firstPlayNanos == NOT_STARTED) firstPlayNanos = now
+        segmentStartNanos = now
+        playing = true
+    }
+
+    fun pause() {
+        if (!playing) return
+        completedActiveNanos += nanoClock() - segmentStartNanos
+        playing = false
+    }
+
+    fun addWords(count: Int) {
+        wordsDisplayed += count
+    }
+
+    val activeNanos: Long
+        get() = completedActiveNanos + if (playing) nanoClock() - segmentStartNanos else 0L
+
+    val pausedNanos: Long
+        get() = if (firstPlayNanos == NOT_STARTED) 0L else nanoClock() - firstPlayNanos - activeNanos
+
+    val activeSeconds: Int
+        get() = (activeNanos / NANOS_PER_SECOND).toInt()
+
+    val pausedSeconds: Int
+        get() = (pausedNanos / NANOS_PER_SECOND).toInt()
+
+    companion object {
+        private const val NOT_STARTED = Long.MIN_VALUE
+        private const val NANOS_PER_SECOND = 1_000_000_000L
+    }
+}
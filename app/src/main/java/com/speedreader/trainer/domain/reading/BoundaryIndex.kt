@@ -0,0 +1,88 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.EncodedDocument
+
+/**
+ * Sorted word indices at which sentences, paragraphs and chapters begin,
+ * computed once at document load. Navigation is a binary search, so rewinding costs the
+ * same on a short article and a 500k-word book.
+ */
+class BoundaryIndex private constructor(
+    private val sentenceStarts: IntArray,
+    private val paragraphStarts: IntArray,
+    private val chapterStarts: IntArray,
+    val wordCount: Int
+) {
+    val hasChapters: Boolean
+        get() = chapterStarts.size > 1
+
+    /** Start of the sentence containing [index], or the previous one if already at its start. */
+    fun previousSentence(index: Int): Int = previous(sentenceStarts, index)
+
+    fun nextSentence(index: Int): Int = next(sentenceStarts, index)
+
+    fun previousParagraph(index: Int): Int = previous(paragraphStarts, index)
+
+    fun nextParagraph(index: Int): Int = next(paragraphStarts, index)
+
+    fun previousChapter(index: Int): Int = previous(chapterStarts, index)
+
+    fun nextChapter(index: Int): Int = next(chapterStarts, index)
+
+    /** Sentence start at or before [fraction] of the document, for seeking. */
+    fun indexAtFraction(fraction: Float): Int {
+        if (wordCount == 0) return 0
+        val target = (fraction.coerceIn(0f, 1f) * (wordCount - 1)).toInt()
+        return sentenceStarts[floor(sentenceStarts, target)]
+    }
+
+    private fun previous(starts: IntArray, index: Int): Int {
+        if (starts.isEmpty()) return 0
+        val pos = floor(starts, index)
+        return if (starts[pos] < index) starts[pos] else starts[(pos - 1).coerceAtLeast(0)]
+    }
+
+    private fun next(starts: IntArray, index: Int): Int {
+        if (starts.isEmpty()) return index
+        val pos = floor(starts, index) + 1
+        return if (pos < starts.size) starts[pos] else index
+    }
+
+    /** Position of the largest element <= [value]; 0 if every element is larger. */
+    private fun floor(starts: IntArray, value: Int): Int {
+        val found = starts.binarySearch(value)
+        return if (found >= 0) found else (-found - 2).coerceAtLeast(0)
+    }
+
+    companion object {
+        val EMPTY = BoundaryIndex(IntArray(0), IntArray(0), IntArray(0), 0)
+
+        /** @param chapterStarts ascending word indices of chapter anchors, if the source had any. */
+        fun build(document: EncodedDocument, chapterStarts: List<Int> = emptyList()): BoundaryIndex {
+            if (document.size == 0) return EMPTY
+
+            var sentenceCount = 1
+            var paragraphCount = 1
+            for (i in 0 until document.size - 1) {
+                val paragraphEnd = document.isParagraphEnd(i)
+                if (paragraphEnd) paragraphCount++
+                if (paragraphEnd || document.isSentenceEnd(i)) sentenceCount++
+            }
+
+            val sentences = IntArray(sentenceCount)
+            val paragraphs = IntArray(paragraphCount)
+            var s = 1
+            var p = 1
+            for (i in 0 until document.size - 1) {
+                val paragraphEnd = document.isParagraphEnd(i)
+                if (paragraphEnd) paragraphs[p++] = i + 1
+                if (paragraphEnd || document.isSentenceEnd(i)) sentences[s++] = i + 1
+            }
+            // Text before the first anchor still belongs to a chapter starting at 0
+            val chapters = if (chapterStarts.isEmpty()) IntArray(0) else {
+                (listOf(0) + chapterStarts.filter { it in 1 until document.size }).toIntArray()
+            }
+            return BoundaryIndex(sentences, paragraphs, chapters, document.size)
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.EncodedDocument
+
+/**
+ * Chunked view of an [EncodedDocument]. Chunks are handed out as
+ * [CharSequence] views over the vocabulary words, joined by single spaces.
+ * Nothing is kept per position: the renderer caches layouts by chunk start
+ * (see [ChunkSlots]) and only asks for the text when it has to measure, so
+ * memory stays flat however far the reader gets.
+ *
+ * Pivots are computed once per distinct word; [withChunkSize] only swaps the
+ * chunk width and shares everything else. Immutable, so the layout prefetcher
+ * may read chunks from a background thread.
+ */
+class ChunkIndex private constructor(
+    private val document: EncodedDocument,
+    private val pivots: ByteArray,
+    val chunkSize: Int
+) {
+    val wordCount: Int
+        get() = document.size
+
+    /** The chunk beginning at word [index], or an empty sequence past the end. */
+    fun chunkAt(index: Int): CharSequence {
+        if (index < 0 || index >= wordCount) return ""
+        return ChunkView(index, minOf(index + chunkSize, wordCount))
+    }
+
+    /**
+     * Offset within [chunkAt] of the optimal recognition point: the pivot letter
+     * of the chunk's middle word, which the renderer keeps at a fixed position.
+     */
+    fun pivotAt(index: Int): Int {
+        if (index < 0 || index >= wordCount) return 0
+        val last = minOf(index + chunkSize, wordCount) - 1
+        val middle = index + (last - index) / 2
+        var offset = 0
+        for (i in index until middle) offset += document.word(i).length + 1
+        return offset + pivots[document.wordId(middle)]
+    }
+
+    /** Words in [from, to) joined by single spaces. */
+    fun text(from: Int, to: Int): String {
+        val start = from.coerceIn(0, wordCount)
+        val end = to.coerceIn(start, wordCount)
+        if (start == end) return ""
+        val builder = StringBuilder(joinedLength(start, end))
+        appendWords(builder, start, end)
+        return builder.toString()
+    }
+
+    fun withChunkSize(size: Int): ChunkIndex {
+        return if (size == chunkSize) this else ChunkIndex(document, pivots, size)
+    }
+
+    private fun joinedLength(from: Int, to: Int): Int {
+        var length = to - from - 1
+        for (i in from until to) length += document.word(i).length
+        return length
+    }
+
+    private fun appendWords(builder: StringBuilder, from: Int, to: Int) {
+        for (i in from until to) {
+            if (i > from) builder.append(' ')
+            builder.append(document.word(i))
+        }
+    }
+
+    private inner class ChunkView(
+        private val from: Int,
+        private val to: Int
+    ) : CharSequence {
+        private var string: String? = null
+
+        override val length: Int = joinedLength(from, to)
+
+        override fun get(index: Int): Char {
+            string?.let { return it[index] }
+            var remaining = index
+            for (i in from until to) {
+                val word = document.word(i)
+                if (remaining < word.length) return word[remaining]
+                if (remaining == word.length) return ' '
+                remaining -= word.length + 1
+            }
+            throw IndexOutOfBoundsException("index: $index, length: $length")
+        }
+
+        override fun subSequence(startIndex: Int, endIndex: Int): CharSequence =
+            toString().substring(startIndex, endIndex)
+
+        override fun toString(): String =
+            string ?: StringBuilder(length).also { appendWords(it, from, to) }.toString()
+                .also { string = it }
+
+        override fun equals(other: Any?): Boolean {
+            if (this === other) return true
+            if (other !is CharSequence || other.length != length) return false
+            val text = toString()
+            for (i in 0 until length) {
+                if (other[i] != text[i]) return false
+            }
+            return true
+        }
+
+        override fun hashCode(): Int = toString().hashCode()
+    }
+
+    companion object {
+        val EMPTY = ChunkIndex(EncodedDocument.EMPTY, ByteArray(0), 1)
+
+        fun build(document: EncodedDocument, chunkSize: Int): ChunkIndex {
+            val pivots = ByteArray(document.vocabularySize) { id ->
+                val word = document.vocabularyWord(id)
+                pivotOf(word, 0, word.length).toByte()
+            }
+            return ChunkIndex(document, pivots, chunkSize)
+        }
+
+        /** Classic ORP placement: slightly left of centre, ignoring leading punctuation. */
+        private fun pivotOf(text: CharSequence, start: Int, end: Int): Int {
+            var lead = start
+            while (lead < end && !text[lead].isLetterOrDigit()) lead++
+            if (lead == end) return 0
+            var tail = end
+            while (tail > lead && !text[tail - 1].isLetterOrDigit()) tail--
+            val offset = when (tail - lead) {
+                1 -> 0
+                in 2..5 -> 1
+                in 6..9 -> 2
+                in 10..13 -> 3
+                else -> 4
+            }
+            return minOf(lead - start + offset, end - start - 1, Byte.MAX_VALUE.toInt())
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.speedreader.trainer.domain.reading
+
+/**
+ * Fixed table of per-chunk values keyed by the chunk's first word. Chunks on
+ * the same grid land in consecutive slots, so the table holds the window
+ * around the cursor; a value is dropped when a chunk [capacity] chunks away
+ * takes its slot. Lookups never allocate. Not thread-safe on its own.
+ */
+class ChunkSlots<T : Any>(capacity: Int) {
+    private val starts = IntArray(capacity) { -1 }
+    private val values = arrayOfNulls<Any>(capacity)
+    private var stride = 1
+
+    init {
+        require(capacity > 0 && capacity and (capacity - 1) == 0) { "capacity must be a power of two" }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    operator fun get(start: Int): T? {
+        val slot = slotOf(start)
+        return if (starts[slot] == start) values[slot] as T else null
+    }
+
+    operator fun set(start: Int, value: T) {
+        val slot = slotOf(start)
+        starts[slot] = start
+        values[slot] = value
+    }
+
+    /** Empties the table for chunks [stride] words wide. */
+    fun reset(stride: Int) {
+        this.stride = stride.coerceAtLeast(1)
+        starts.fill(-1)
+        values.fill(null)
+    }
+
+    private fun slotOf(start: Int): Int = (start / stride) and (starts.size - 1)
+}
@@ -0,0 +1,101 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.Punctuation
+import com.speedreader.trainer.domain.text.EncodedDocument
+
+/**
+ * Per-token dwell weights computed once at document load. Weights are stored
+ * as a cumulative sum so the dwell for any word or chunk is an O(1) lookup,
+ * and changing the target WPM only swaps the nanos-per-unit scale.
+ */
+class DisplayTimeline private constructor(
+    private val cumulativeWeights: LongArray
+) {
+    val size: Int
+        get() = cumulativeWeights.size - 1
+
+    private var nanosPerUnit = 0.0
+
+    /** Rescales the timeline so the whole document plays at [wpm] on average. */
+    fun retarget(wpm: Int) {
+        val totalWeight = cumulativeWeights[size]
+        nanosPerUnit = if (totalWeight == 0L) {
+            0.0
+        } else {
+            RsvpScheduler.NANOS_PER_MINUTE.toDouble() * size / (wpm.coerceAtLeast(1) * totalWeight)
+        }
+    }
+
+    /** Display time for tokens in [from, to). */
+    fun dwellNanos(from: Int, to: Int): Long {
+        val start = from.coerceIn(0, size)
+        val end = to.coerceIn(start, size)
+        return ((cumulativeWeights[end] - cumulativeWeights[start]) * nanosPerUnit).toLong()
+    }
+
+    companion object {
+        private const val BASE_WEIGHT = 1000
+        private const val LONG_WORD_THRESHOLD = 6
+        private const val PER_EXTRA_CHAR = 60
+        private const val MAX_LENGTH_BONUS = 800
+        private const val NUMBER_BONUS = 400
+        private const val CLAUSE_PAUSE = 500
+        private const val SENTENCE_PAUSE = 1000
+        private const val HEADING_PAUSE = 1000
+        const val DEFAULT_PARAGRAPH_PAUSE_WORDS = 2
+
+        val EMPTY = DisplayTimeline(LongArray(1))
+
+        /**
+         * @param paragraphPauseWords extra dwell after a paragraph break, in
+         *   average-word units; headings get one more word on top.
+         */
+        fun build(
+            document: EncodedDocument,
+            wpm: Int,
+            paragraphPauseWords: Int = DEFAULT_PARAGRAPH_PAUSE_WORDS
+        ): DisplayTimeline {
+            val paragraphPause = paragraphPauseWords.coerceAtLeast(0) * BASE_WEIGHT
+            // Weigh each distinct word once; repeats are a table lookup
+            val vocabularyWeights = IntArray(document.vocabularySize) { id ->
+                val word = document.vocabularyWord(id)
+                weightOf(word, 0, word.length)
+            }
+            val cumulative = LongArray(document.size + 1)
+            for (i in 0 until document.size) {
+                var weight = vocabularyWeights[document.wordId(i)]
+                if (document.isParagraphEnd(i)) {
+                    weight += paragraphPause
+                    if (document.isHeading(i)) weight += HEADING_PAUSE
+                }
+                cumulative[i + 1] = cumulative[i] + weight
+            }
+            return DisplayTimeline(cumulative).also { it.retarget(wpm) }
+        }
+
+        internal fun weightOf(text: CharSequence, start: Int, end: Int): Int {
+            if (end <= start) return BASE_WEIGHT
+            var weight = BASE_WEIGHT
+
+            var letters = 0
+            var hasDigit = false
+            for (i in start until end) {
+                val c = text[i]
+                if (c.isLetterOrDigit()) letters++
+                if (c.isDigit()) hasDigit = true
+            }
+            if (letters > LONG_WORD_THRESHOLD) {
+                weight += ((letters - LONG_WORD_THRESHOLD) * PER_EXTRA_CHAR).coerceAtMost(MAX_LENGTH_BONUS)
+            }
+            if (hasDigit) weight += NUMBER_BONUS
+
+            val terminal = Punctuation.terminal(text, start, end)
+            weight += when {
+                Punctuation.isSentenceEnd(terminal) -> SENTENCE_PAUSE
+                Punctuation.isClauseBreak(terminal) -> CLAUSE_PAUSE
+                else -> 0
+            }
+            return weight
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.TextRevision
+import com.speedreader.trainer.domain.text.TokenStream
+
+/**
+ * A reading position that survives edits to the document: the character
+ * offset of the word plus a hash of the text starting there. A word index
+ * shifts whenever a word is added or removed earlier in the text; the anchor
+ * is carried through a [TextRevision] and re-found by its context instead.
+ */
+data class ReadingAnchor(
+    val charOffset: Int,
+    val contextHash: Int
+) {
+    /** Word index of this anchor in [tokens], the revised text that [revision] maps into. */
+    fun resolve(tokens: TokenStream, revision: TextRevision): Int {
+        if (tokens.size == 0) return 0
+
+        // Unchanged paragraph: the offset carries over exactly
+        val mapped = revision.mapOffset(charOffset)
+        if (mapped >= 0) {
+            val index = tokenAtOrAfter(tokens, mapped)
+            if (index < tokens.size && tokens.start(index) == mapped) return index
+        }
+
+        // Edited paragraph: look for the same context near where it should be
+        val estimate = tokenAtOrAfter(tokens, revision.estimateOffset(charOffset)).coerceAtMost(tokens.size - 1)
+        val from = (estimate - SEARCH_WORDS).coerceAtLeast(0)
+        val to = (estimate + SEARCH_WORDS).coerceAtMost(tokens.size - 1)
+        var best = -1
+        for (index in from..to) {
+            if (contextHash(tokens.text, tokens.start(index)) != contextHash) continue
+            if (best < 0 || Math.abs(index - estimate) < Math.abs(best - estimate)) best = index
+        }
+        return if (best >= 0) best else estimate
+    }
+
+    companion object {
+        private const val CONTEXT_CHARS = 48
+        private const val SEARCH_WORDS = 2_000
+
+        fun at(tokens: TokenStream, wordIndex: Int): ReadingAnchor? {
+            if (wordIndex !in 0 until tokens.size) return null
+            val offset = tokens.start(wordIndex)
+            return ReadingAnchor(offset, contextHash(tokens.text, offset))
+        }
+
+        private fun contextHash(text: String, offset: Int): Int {
+            val end = minOf(text.length, offset + CONTEXT_CHARS)
+            var hash = 0
+            for (i in offset until end) hash = 31 * hash + text[i].code
+            return hash
+        }
+
+        private fun tokenAtOrAfter(tokens: TokenStream, offset: Int): Int {
+            var low = 0
+            var high = tokens.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (tokens.start(mid) < offset) low = mid + 1 else high = mid
+            }
+            return low
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.speedreader.trainer.domain.reading
+
+import kotlinx.coroutines.delay
+import kotlin.math.abs
+
+/**
+ * Paces RSVP playback against absolute monotonic deadlines instead of chaining
+ * relative delays, so millisecond truncation and per-tick overhead never
+ * accumulate over a long document.
+ *
+ * The default clock is System.nanoTime, the same timebase as Choreographer
+ * frame times, so deadlines can be compared directly with when a frame drew.
+ */
+class RsvpScheduler(
+    private val nanoClock: () -> Long = System::nanoTime
+) {
+    /** Active/paused time and words shown, driven by [start], [stop] and each tick. */
+    val activeTime = ActiveTimeAccumulator(nanoClock)
+
+    private var nextDeadlineNanos = 0L
+    private var ticks = 0L
+    private var jitterSumNanos = 0L
+    private var maxJitterNanos = 0L
+
+    /** Deadline of the most recent tick, i.e. when the current chunk was due on screen. */
+    val lastDeadlineNanos: Long
+        get() = nextDeadlineNanos
+
+    /** Anchors a new play segment at the current monotonic time. */
+    fun start() {
+        nextDeadlineNanos = nanoClock()
+        activeTime.resume()
+    }
+
+    /** Closes the current play segment so paused time is not counted. */
+    fun stop() {
+        activeTime.pause()
+    }
+
+    /**
+     * Suspends until the next deadline, [intervalNanos] after the previous one,
+     * then credits [words] as displayed. If the loop was stalled for longer than
+     * [MAX_CATCH_UP_NANOS] the schedule is re-anchored rather than bursting.
+     */
+    suspend fun awaitTick(intervalNanos: Long, words: Int) {
+        nextDeadlineNanos += intervalNanos
+        val remaining = nextDeadlineNanos - nanoClock()
+        if (remaining > 0) {
+            delay((remaining + NANOS_PER_MILLI / 2) / NANOS_PER_MILLI)
+        }
+
+        val woke = nanoClock()
+        val lateness = woke - nextDeadlineNanos
+        val jitter = abs(lateness)
+        jitterSumNanos += jitter
+        if (jitter > maxJitterNanos) maxJitterNanos = jitter
+        ticks++
+        activeTime.addWords(words)
+
+        if (lateness > MAX_CATCH_UP_NANOS) {
+            nextDeadlineNanos = woke
+        }
+    }
+
+    /** Words per minute actually delivered across all play segments. */
+    val effectiveWpm: Int
+        get() {
+            val elapsed = activeTime.activeNanos
+            val words = activeTime.wordsDisplayed
+            if (elapsed <= 0L || words == 0L) return 0
+            return (words * NANOS_PER_MINUTE / elapsed).toInt()
+        }
+
+    /** Mean absolute distance between scheduled and actual tick times. */
+    val meanJitterMs: Float
+        get() = if (ticks == 0L) 0f else jitterSumNanos.toFloat() / ticks / NANOS_PER_MILLI
+
+    val maxJitterMs: Float
+        get() = maxJitterNanos.toFloat() / NANOS_PER_MILLI
+
+    companion object {
+        const val NANOS_PER_MILLI = 1_000_000L
+        const val NANOS_PER_MINUTE = 60_000_000_000L
+        private const val MAX_CATCH_UP_NANOS = 250 * NANOS_PER_MILLI
+    }
+}
@@ -0,0 +1,26 @@
+package com.speedreader.trainer.domain.text
+
+import java.security.MessageDigest
+
+/** SHA-256 fingerprints of text and files, as lowercase hex. */
+object ContentHash {
+    private const val ALGORITHM = "SHA-256"
+    private const val HEX_DIGITS = "0123456789abcdef"
+
+    fun newDigest(): MessageDigest = MessageDigest.getInstance(ALGORITHM)
+
+    fun of(text: String, start: Int = 0, end: Int = text.length): String {
+        val digest = newDigest()
+        digest.update(text.substring(start, end).toByteArray(Charsets.UTF_8))
+        return toHex(digest.digest())
+    }
+
+    fun toHex(bytes: ByteArray): String {
+        val hex = StringBuilder(bytes.size * 2)
+        for (b in bytes) {
+            val value = b.toInt() and 0xFF
+            hex.append(HEX_DIGITS[value ushr 4]).append(HEX_DIGITS[value and 0x0F])
+        }
+        return hex.toString()
+    }
+}
@@ -0,0 +1,101 @@
+package com.speedreader.trainer.domain.text
+
+/**
+ * Compact in-memory form of a document for the reader. Each distinct word is
+ * stored once in a vocabulary and the text itself is an IntArray of vocabulary
+ * ids, with the token's paragraph, heading and sentence flags packed into the
+ * top bits. The source text is not retained once a document is encoded.
+ */
+class EncodedDocument private constructor(
+    private val vocabulary: Array<String>,
+    private val packed: IntArray
+) {
+    val size: Int
+        get() = packed.size
+
+    val vocabularySize: Int
+        get() = vocabulary.size
+
+    fun wordId(index: Int): Int = packed[index] and ID_MASK
+
+    /** The word at [index]; shared with every other occurrence, never allocated. */
+    fun word(index: Int): String = vocabulary[packed[index] and ID_MASK]
+
+    fun vocabularyWord(id: Int): String = vocabulary[id]
+
+    fun isParagraphEnd(index: Int): Boolean = hasFlag(index, Tokenizer.FLAG_PARAGRAPH_END)
+
+    fun isHeading(index: Int): Boolean = hasFlag(index, Tokenizer.FLAG_HEADING)
+
+    fun isSentenceEnd(index: Int): Boolean = hasFlag(index, Tokenizer.FLAG_SENTENCE_END)
+
+    private fun hasFlag(index: Int, flag: Int): Boolean =
+        (packed[index] ushr FLAG_SHIFT) and flag != 0
+
+    companion object {
+        private const val FLAG_SHIFT = 28
+        private const val ID_MASK = (1 shl FLAG_SHIFT) - 1
+        private const val INITIAL_TABLE_SIZE = 1024
+
+        val EMPTY = EncodedDocument(emptyArray(), IntArray(0))
+
+        /**
+         * Interns [tokens] against their source text directly, so only the
+         * first occurrence of each distinct word allocates a String.
+         */
+        fun encode(tokens: TokenStream): EncodedDocument {
+            val text = tokens.text
+            val vocabulary = ArrayList<String>()
+            var hashes = IntArray(INITIAL_TABLE_SIZE / 2)
+            var table = IntArray(INITIAL_TABLE_SIZE) // vocabulary id + 1, 0 = empty slot
+            val packed = IntArray(tokens.size)
+
+            for (i in 0 until tokens.size) {
+                val start = tokens.start(i)
+                val length = tokens.end(i) - start
+                var hash = 0
+                for (j in start until start + length) hash = 31 * hash + text[j].code
+
+                var slot = mix(hash) and (table.size - 1)
+                var id = -1
+                while (table[slot] != 0) {
+                    val candidate = table[slot] - 1
+                    val word = vocabulary[candidate]
+                    if (hashes[candidate] == hash && word.length == length &&
+                        word.regionMatches(0, text, start, length)
+                    ) {
+                        id = candidate
+                        break
+                    }
+                    slot = (slot + 1) and (table.size - 1)
+                }
+
+                if (id < 0) {
+                    id = vocabulary.size
+                    check(id <= ID_MASK) { "Vocabulary too large" }
+                    vocabulary.add(text.substring(start, start + length))
+                    if (id == hashes.size) hashes = hashes.copyOf(hashes.size * 2)
+                    hashes[id] = hash
+                    table[slot] = id + 1
+                    if (vocabulary.size * 2 > table.size) {
+                        table = rehash(hashes, vocabulary.size, table.size * 2)
+                    }
+                }
+                packed[i] = id or (tokens.flagsAt(i) shl FLAG_SHIFT)
+            }
+            return EncodedDocument(vocabulary.toTypedArray(), packed)
+        }
+
+        private fun rehash(hashes: IntArray, count: Int, capacity: Int): IntArray {
+            val table = IntArray(capacity)
+            for (id in 0 until count) {
+                var slot = mix(hashes[id]) and (capacity - 1)
+                while (table[slot] != 0) slot = (slot + 1) and (capacity - 1)
+                table[slot] = id + 1
+            }
+            return table
+        }
+
+        private fun mix(hash: Int): Int = hash xor (hash ushr 16)
+    }
+}
@@ -0,0 +1,173 @@
+package com.speedreader.trainer.domain.text
+
+/**
+ * Reduces Markdown to the plain text the tokenizer reads, one line at a time
+ * so it can run inside a streaming reader. Headings (ATX and underlined) come
+ * out as a line starting with [Tokenizer.HEADING_MARKER], which the tokenizer
+ * turns into a section boundary, so an escaped `\#` at the start of a line
+ * stays a word; emphasis, links, images, code fences, quotes, list markers
+ * and HTML tags are reduced to their visible text.
+ */
+class MarkdownStripper {
+    private var fence: String? = null
+
+    // Last paragraph line, held back in case the next line underlines it
+    private var pending: String? = null
+
+    /** Feeds one input line without its terminator; finished output goes to [out]. */
+    fun line(raw: String, out: StringBuilder) {
+        val line = raw.trimEnd('\r')
+        val trimmed = line.trim()
+
+        fence?.let { marker ->
+            if (trimmed.startsWith(marker)) {
+                fence = null
+                out.append('\n')
+            } else {
+                out.append(line.replace(Tokenizer.HEADING_MARKER.toString(), "")).append('\n')
+            }
+            return
+        }
+        if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+            flush(out)
+            out.append('\n')
+            fence = trimmed.substring(0, 3)
+            return
+        }
+
+        val underlined = pending
+        if (underlined != null && trimmed.isNotEmpty() && (trimmed.all { it == '=' } || trimmed.all { it == '-' })) {
+            pending = null
+            heading(underlined, out)
+            return
+        }
+        flush(out)
+
+        when {
+            trimmed.isEmpty() || isThematicBreak(trimmed) -> out.append('\n')
+            isReferenceDefinition(trimmed) -> Unit
+            atxLevel(trimmed) > 0 -> {
+                val level = atxLevel(trimmed)
+                heading(trimmed.substring(level).trim().trimEnd('#').trim(), out)
+            }
+            else -> {
+                val body = stripBlockPrefix(trimmed)
+                if (body.length == trimmed.length) {
+                    pending = body
+                } else {
+                    out.append(inline(body)).append('\n')
+                }
+            }
+        }
+    }
+
+    /** Emits anything still held back; call once after the last line. */
+    fun finish(out: StringBuilder) {
+        flush(out)
+    }
+
+    private fun flush(out: StringBuilder) {
+        pending?.let { out.append(inline(it)).append('\n') }
+        pending = null
+    }
+
+    private fun heading(title: String, out: StringBuilder) {
+        out.append(Tokenizer.HEADING_MARKER).append(' ').append(inline(title)).append('\n')
+    }
+
+    private fun atxLevel(line: String): Int {
+        var level = 0
+        while (level < line.length && line[level] == '#') level++
+        return if (level in 1..6 && (level == line.length || line[level] == ' ')) level else 0
+    }
+
+    private fun isThematicBreak(line: String): Boolean {
+        val marker = line[0]
+        if (marker != '-' && marker != '*' && marker != '_') return false
+        var count = 0
+        for (c in line) {
+            if (c == marker) count++ else if (c != ' ') return false
+        }
+        return count >= 3
+    }
+
+    private fun isReferenceDefinition(line: String): Boolean {
+        if (!line.startsWith('[')) return false
+        val close = line.indexOf("]:")
+        return close > 1 && !line.startsWith("[^")
+    }
+
+    /** Drops blockquote markers, list bullets, ordered list numbers and task boxes. */
+    private fun stripBlockPrefix(line: String): String {
+        var text = line
+        while (text.startsWith('>')) text = text.substring(1).trimStart()
+
+        if (text.length >= 2 && text[0] in "-*+" && text[1] == ' ') {
+            text = text.substring(2).trimStart()
+        } else {
+            var digits = 0
+            while (digits < text.length && text[digits].isDigit()) digits++
+            if (digits in 1..9 && digits + 1 < text.length &&
+                text[digits] in ".)" && text[digits + 1] == ' '
+            ) {
+                text = text.substring(digits + 2).trimStart()
+            }
+        }
+        if (text.startsWith("[ ] ") || text.startsWith("[x] ") || text.startsWith("[X] ")) {
+            text = text.substring(4)
+        }
+        return text
+    }
+
+    /** Visible text of one line of inline Markdown. */
+    private fun inline(text: String): String {
+        val out = StringBuilder(text.length)
+        var i = 0
+        while (i < text.length) {
+            val c = text[i]
+            when {
+                c == '\\' && i + 1 < text.length -> {
+                    out.append(text[i + 1])
+                    i += 2
+                    continue
+                }
+                c == Tokenizer.HEADING_MARKER -> Unit
+                c == '!' && i + 1 < text.length && text[i + 1] == '[' -> Unit
+                c == '[' -> Unit
+                c == ']' && i + 1 < text.length && (text[i + 1] == '(' || text[i + 1] == '[') -> {
+                    // Link target: skip to the matching close
+                    val close = text.indexOf(if (text[i + 1] == '(') ')' else ']', i + 2)
+                    if (close >= 0) {
+                        i = close + 1
+                        continue
+                    }
+                }
+                c == ']' -> Unit
+                c == '`' || c == '*' -> Unit
+                c == '~' && i + 1 < text.length && text[i + 1] == '~' -> i++
+                c == '_' && isEmphasisUnderscore(text, i) -> Unit
+                c == '<' -> {
+                    val close = text.indexOf('>', i + 1)
+                    if (close > i + 1) {
+                        val inner = text.substring(i + 1, close)
+                        // Autolinks keep their address; HTML tags disappear
+                        if (inner.startsWith("http") || inner.contains('@')) out.append(inner)
+                        i = close + 1
+                        continue
+                    }
+                    out.append(c)
+                }
+                else -> out.append(c)
+            }
+            i++
+        }
+        return out.toString()
+    }
+
+    // Intra-word underscores (snake_case) are text, not emphasis
+    private fun isEmphasisUnderscore(text: String, index: Int): Boolean {
+        val before = index > 0 && text[index - 1].isLetterOrDigit()
+        val after = index + 1 < text.length && text[index + 1].isLetterOrDigit()
+        return !(before && after)
+    }
+}
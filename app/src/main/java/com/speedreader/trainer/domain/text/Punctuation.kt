@@ -0,0 +1,21 @@
+package com.speedreader.trainer.domain.text
+
+internal object Punctuation {
+    private const val CLOSERS = "\"')]}”’»」』）】"
+
+    /** Last character of text[start, end), looking past closing quotes and brackets. */
+    fun terminal(text: CharSequence, start: Int, end: Int): Char {
+        if (end <= start) return ' '
+        var last = end - 1
+        while (last > start && text[last] in CLOSERS) last--
+        return text[last]
+    }
+
+    fun endsSentence(text: CharSequence, start: Int, end: Int): Boolean =
+        isSentenceEnd(terminal(text, start, end))
+
+    // Full-width forms cover CJK text, which has no spaces to fall back on
+    fun isSentenceEnd(c: Char): Boolean = c in ".!?。！？"
+
+    fun isClauseBreak(c: Char): Boolean = c in ",;:—–，、；："
+}
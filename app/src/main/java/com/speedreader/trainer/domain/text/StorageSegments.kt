@@ -0,0 +1,82 @@
+package com.speedreader.trainer.domain.text
+
+/**
+ * Cuts a document's text into the slices it is stored in. Cuts fall between
+ * paragraphs and are chosen by the paragraph's own content once a slice
+ * reaches [MIN_CHARS], so an edit only changes the slices around it and the
+ * rest keep their hash. A slice never exceeds [MAX_CHARS], which keeps it
+ * well under Firestore's 1 MiB document limit even at 4 bytes per char.
+ */
+object StorageSegments {
+    const val MIN_CHARS = 16 * 1024
+    const val MAX_CHARS = 128 * 1024
+
+    // About one cut per 32 paragraphs past the minimum
+    private const val CUT_MASK = 0x1F
+
+    /** Text [start, end) of one slice, holding [wordCount] words, keyed by [hash]. */
+    class Segment(
+        val start: Int,
+        val end: Int,
+        val wordCount: Int,
+        val hash: String
+    )
+
+    fun split(tokens: TokenStream): List<Segment> {
+        val text = tokens.text
+        val cuts = ArrayList<Int>()
+        val spans = TextRevision.paragraphSpans(text)
+        var segmentStart = 0
+        for (p in 0 until spans.size / 2) {
+            val start = spans[2 * p]
+            val end = spans[2 * p + 1]
+
+            // A paragraph that would overflow the slice starts a new one; a huge
+            // paragraph is cut at spaces on its own
+            if (end - segmentStart > MAX_CHARS && start > segmentStart) {
+                cuts.add(start)
+                segmentStart = start
+            }
+            while (end - segmentStart > MAX_CHARS) {
+                segmentStart = cutInside(text, segmentStart)
+                cuts.add(segmentStart)
+            }
+
+            val next = if (2 * p + 2 < spans.size) spans[2 * p + 2] else text.length
+            if (next - segmentStart >= MIN_CHARS && paragraphHash(text, start, end) and CUT_MASK == 0) {
+                if (next < text.length) cuts.add(next)
+                segmentStart = next
+            }
+        }
+
+        val segments = ArrayList<Segment>(cuts.size + 1)
+        var from = 0
+        var word = 0
+        for (cut in cuts + text.length) {
+            if (cut <= from) continue
+            val firstWord = word
+            while (word < tokens.size && tokens.start(word) < cut) word++
+            segments.add(Segment(from, cut, word - firstWord, ContentHash.of(text, from, cut)))
+            from = cut
+        }
+        return segments
+    }
+
+    /** End of a [MAX_CHARS] slice from [start], at the last space when there is one. */
+    private fun cutInside(text: String, start: Int): Int {
+        val limit = start + MAX_CHARS
+        var cut = limit
+        while (cut > start + MIN_CHARS && !text[cut - 1].isWhitespace()) cut--
+        if (cut == start + MIN_CHARS) cut = limit
+        // Never split a surrogate pair
+        if (Character.isLowSurrogate(text[cut]) && Character.isHighSurrogate(text[cut - 1])) cut--
+        return cut
+    }
+
+    private fun paragraphHash(text: String, start: Int, end: Int): Int {
+        var hash = 0
+        for (i in start until end) hash = 31 * hash + text[i].code
+        // Spread the low bits, which the mask reads
+        return hash xor (hash ushr 16)
+    }
+}
@@ -0,0 +1,53 @@
+package com.speedreader.trainer.domain.text
+
+import java.text.Normalizer
+
+/**
+ * Cleans extracted text before tokenizing: NFC composition, one kind of line
+ * ending, no invisible format characters, typographic ligatures spelled out,
+ * and words hyphenated across a line break (common in PDFs) joined again.
+ */
+object TextNormalizer {
+    fun normalize(text: String): String {
+        val composed = if (Normalizer.isNormalized(text, Normalizer.Form.NFC)) {
+            text
+        } else {
+            Normalizer.normalize(text, Normalizer.Form.NFC)
+        }
+        val out = StringBuilder(composed.length)
+        var i = 0
+        while (i < composed.length) {
+            val c = composed[i]
+            when {
+                c == '\r' -> if (i + 1 >= composed.length || composed[i + 1] != '\n') out.append('\n')
+                c in INVISIBLE -> Unit
+                c == '-' && isLineBreakHyphen(composed, i, out) -> {
+                    // Drop the hyphen, the line break and the next line's indent
+                    i++
+                    while (i < composed.length && composed[i] in LINE_BREAK_GAP) i++
+                    continue
+                }
+                c in '\uFB00'..'\uFB06' -> out.append(LIGATURES[c - '\uFB00'])
+                c < ' ' && c != '\n' && c != '\t' -> out.append(' ')
+                else -> out.append(c)
+            }
+            i++
+        }
+        return out.toString()
+    }
+
+    /** "exam-\nple": a hyphen ending a line between a letter and a lowercase letter. */
+    private fun isLineBreakHyphen(text: String, index: Int, out: StringBuilder): Boolean {
+        if (out.isEmpty() || !out[out.length - 1].isLetter()) return false
+        var next = index + 1
+        if (next < text.length && text[next] == '\r') next++
+        if (next >= text.length || text[next] != '\n') return false
+        next++
+        while (next < text.length && (text[next] == ' ' || text[next] == '\t')) next++
+        return next < text.length && text[next].isLowerCase()
+    }
+
+    private const val INVISIBLE = "\u00AD\u200B\u200C\u200D\u2060\uFEFF"
+    private const val LINE_BREAK_GAP = "\r\n \t"
+    private val LIGATURES = arrayOf("ff", "fi", "fl", "ffi", "ffl", "st", "st")
+}
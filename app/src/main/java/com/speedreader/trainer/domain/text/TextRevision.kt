@@ -0,0 +1,205 @@
+package com.speedreader.trainer.domain.text
+
+/**
+ * Paragraph-level diff between two versions of a document's text. Paragraphs
+ * are the spans the tokenizer separates with a blank line; each one is
+ * either matched to an identical paragraph in the other version or treated
+ * as changed. Matching trims the common head and tail, then pairs paragraphs
+ * that occur exactly once on both sides, keeping the longest run that stays
+ * in order (the core of patience diff).
+ */
+class TextRevision private constructor(
+    // Matched paragraphs in ascending order, as parallel arrays
+    private val oldStarts: IntArray,
+    private val newStarts: IntArray,
+    private val lengths: IntArray
+) {
+    val matchedParagraphs: Int
+        get() = oldStarts.size
+
+    /** Where [oldOffset] sits in the new text, or -1 if its paragraph changed. */
+    fun mapOffset(oldOffset: Int): Int {
+        val match = matchAtOrBefore(oldStarts, oldOffset)
+        if (match < 0 || oldOffset >= oldStarts[match] + lengths[match]) return -1
+        return newStarts[match] + (oldOffset - oldStarts[match])
+    }
+
+    /**
+     * Best guess for [oldOffset] in the new text when its paragraph changed:
+     * just past the nearest unchanged paragraph before it.
+     */
+    fun estimateOffset(oldOffset: Int): Int {
+        val mapped = mapOffset(oldOffset)
+        if (mapped >= 0) return mapped
+        val match = matchAtOrBefore(oldStarts, oldOffset)
+        return if (match < 0) 0 else newStarts[match] + lengths[match]
+    }
+
+    /** Start in the old text of the paragraph matched to the one at [newStart], or -1. */
+    fun oldStartOf(newStart: Int): Int {
+        val match = matchAtOrBefore(newStarts, newStart)
+        return if (match >= 0 && newStarts[match] == newStart) oldStarts[match] else -1
+    }
+
+    private fun matchAtOrBefore(starts: IntArray, offset: Int): Int {
+        var low = 0
+        var high = starts.size - 1
+        var found = -1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            if (starts[mid] <= offset) {
+                found = mid
+                low = mid + 1
+            } else {
+                high = mid - 1
+            }
+        }
+        return found
+    }
+
+    companion object {
+        fun between(oldText: String, newText: String): TextRevision {
+            val old = paragraphSpans(oldText)
+            val new = paragraphSpans(newText)
+            val oldCount = old.size / 2
+            val newCount = new.size / 2
+
+            fun same(i: Int, j: Int): Boolean {
+                val length = old[2 * i + 1] - old[2 * i]
+                return length == new[2 * j + 1] - new[2 * j] &&
+                    oldText.regionMatches(old[2 * i], newText, new[2 * j], length)
+            }
+
+            val pairs = ArrayList<Long>()
+            var head = 0
+            while (head < oldCount && head < newCount && same(head, head)) {
+                pairs.add(pair(head, head))
+                head++
+            }
+            var tail = 0
+            while (tail < oldCount - head && tail < newCount - head &&
+                same(oldCount - 1 - tail, newCount - 1 - tail)
+            ) {
+                tail++
+            }
+            pairs.addAll(uniqueMatches(oldText, old, head, oldCount - tail, newText, new, head, newCount - tail, ::same))
+            for (k in tail downTo 1) pairs.add(pair(oldCount - k, newCount - k))
+
+            val oldStarts = IntArray(pairs.size)
+            val newStarts = IntArray(pairs.size)
+            val lengths = IntArray(pairs.size)
+            for ((index, packed) in pairs.withIndex()) {
+                val i = (packed ushr 32).toInt()
+                val j = packed.toInt()
+                oldStarts[index] = old[2 * i]
+                newStarts[index] = new[2 * j]
+                lengths[index] = old[2 * i + 1] - old[2 * i]
+            }
+            return TextRevision(oldStarts, newStarts, lengths)
+        }
+
+        /**
+         * Paragraph spans of [text] as flattened start/end pairs. A run of
+         * whitespace holding two or more line breaks separates paragraphs,
+         * which is exactly where the tokenizer starts a new paragraph, so
+         * each span tokenizes the same on its own as inside the document.
+         */
+        internal fun paragraphSpans(text: String): IntArray {
+            var spans = IntArray(64)
+            var count = 0
+            var i = 0
+            while (i < text.length) {
+                while (i < text.length && text[i].isWhitespace()) i++
+                if (i == text.length) break
+                val start = i
+                var end = i
+                while (i < text.length) {
+                    if (!text[i].isWhitespace()) {
+                        i++
+                        end = i
+                        continue
+                    }
+                    var newlines = 0
+                    var j = i
+                    while (j < text.length && text[j].isWhitespace()) {
+                        if (text[j] == '\n') newlines++
+                        j++
+                    }
+                    i = j
+                    if (newlines >= 2) break
+                }
+                if (count + 2 > spans.size) spans = spans.copyOf(spans.size * 2)
+                spans[count++] = start
+                spans[count++] = end
+            }
+            return spans.copyOf(count)
+        }
+
+        private fun pair(oldIndex: Int, newIndex: Int): Long =
+            (oldIndex.toLong() shl 32) or (newIndex.toLong() and 0xFFFFFFFFL)
+
+        /** In-order pairs of paragraphs that occur once in each range. */
+        private fun uniqueMatches(
+            oldText: String, old: IntArray, oldFrom: Int, oldTo: Int,
+            newText: String, new: IntArray, newFrom: Int, newTo: Int,
+            same: (Int, Int) -> Boolean
+        ): List<Long> {
+            if (oldFrom >= oldTo || newFrom >= newTo) return emptyList()
+
+            // Hash -> index, or -1 once a paragraph is seen twice
+            val oldByHash = HashMap<Int, Int>()
+            for (i in oldFrom until oldTo) {
+                val hash = spanHash(oldText, old[2 * i], old[2 * i + 1])
+                oldByHash[hash] = if (oldByHash.containsKey(hash)) -1 else i
+            }
+            val newByHash = HashMap<Int, Int>()
+            for (j in newFrom until newTo) {
+                val hash = spanHash(newText, new[2 * j], new[2 * j + 1])
+                newByHash[hash] = if (newByHash.containsKey(hash)) -1 else j
+            }
+
+            // Candidates in old order; keep the longest run increasing in new order
+            val candidates = ArrayList<Long>()
+            for (i in oldFrom until oldTo) {
+                val hash = spanHash(oldText, old[2 * i], old[2 * i + 1])
+                if (oldByHash[hash] != i) continue
+                val j = newByHash[hash] ?: continue
+                if (j >= 0 && same(i, j)) candidates.add(pair(i, j))
+            }
+            return longestIncreasing(candidates)
+        }
+
+        private fun longestIncreasing(candidates: List<Long>): List<Long> {
+            if (candidates.isEmpty()) return emptyList()
+            val tails = IntArray(candidates.size)
+            val previous = IntArray(candidates.size)
+            var length = 0
+            for (k in candidates.indices) {
+                val j = candidates[k].toInt()
+                var low = 0
+                var high = length
+                while (low < high) {
+                    val mid = (low + high) ushr 1
+                    if (candidates[tails[mid]].toInt() < j) low = mid + 1 else high = mid
+                }
+                previous[k] = if (low > 0) tails[low - 1] else -1
+                tails[low] = k
+                if (low == length) length++
+            }
+            val result = ArrayList<Long>(length)
+            var k = tails[length - 1]
+            while (k >= 0) {
+                result.add(candidates[k])
+                k = previous[k]
+            }
+            result.reverse()
+            return result
+        }
+
+        private fun spanHash(text: String, start: Int, end: Int): Int {
+            var hash = end - start
+            for (i in start until end) hash = 31 * hash + text[i].code
+            return hash
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.speedreader.trainer.domain.text
+
+/**
+ * Words of a document in reading order, stored as start/end offsets into the
+ * original text rather than one String per word. Paragraph and heading
+ * structure is kept as flag bits per token so later stages never re-parse.
+ */
+class TokenStream(
+    val text: String,
+    private val starts: IntArray,
+    private val ends: IntArray,
+    private val flags: ByteArray
+) {
+    val size: Int
+        get() = starts.size
+
+    fun start(index: Int): Int = starts[index]
+
+    fun end(index: Int): Int = ends[index]
+
+    /** Allocates; prefer [start]/[end] on hot paths. */
+    fun wordAt(index: Int): String = text.substring(starts[index], ends[index])
+
+    /** True if a paragraph (or heading block) ends after token [index]. */
+    fun isParagraphEnd(index: Int): Boolean =
+        flags[index].toInt() and Tokenizer.FLAG_PARAGRAPH_END != 0
+
+    fun isHeading(index: Int): Boolean =
+        flags[index].toInt() and Tokenizer.FLAG_HEADING != 0
+
+    fun isSentenceEnd(index: Int): Boolean =
+        flags[index].toInt() and Tokenizer.FLAG_SENTENCE_END != 0
+
+    /** Raw flag bits of token [index], for serialization. */
+    fun flagsAt(index: Int): Int = flags[index].toInt()
+
+    /**
+     * These tokens as words [wordsBefore] onward of a [totalWords]-word
+     * stream, every other word a [PLACEHOLDER]. Offsets stay in order; all
+     * placeholders share one character at either end of the text.
+     */
+    fun padded(wordsBefore: Int, totalWords: Int): TokenStream {
+        val paddedText = PLACEHOLDER + text + PLACEHOLDER
+        val tail = paddedText.length - PLACEHOLDER.length
+        val paddedStarts = IntArray(totalWords)
+        val paddedEnds = IntArray(totalWords)
+        val paddedFlags = ByteArray(totalWords)
+        for (i in 0 until totalWords) {
+            val own = i - wordsBefore
+            if (own in 0 until size) {
+                paddedStarts[i] = starts[own] + PLACEHOLDER.length
+                paddedEnds[i] = ends[own] + PLACEHOLDER.length
+                paddedFlags[i] = flags[own]
+            } else {
+                paddedStarts[i] = if (own < 0) 0 else tail
+                paddedEnds[i] = paddedStarts[i] + PLACEHOLDER.length
+            }
+        }
+        return TokenStream(paddedText, paddedStarts, paddedEnds, paddedFlags)
+    }
+
+    companion object {
+        val EMPTY = TokenStream("", IntArray(0), IntArray(0), ByteArray(0))
+
+        /** Stands in for a word whose text isn't loaded yet. */
+        const val PLACEHOLDER = "…"
+    }
+}
+
+/**
+ * The one tokenizer shared by upload, reading and quiz generation. It scans
+ * the text once on whitespace without regexes or per-word Strings, and hands
+ * each run to a [WordSegmenter] for scripts that do not use spaces.
+ */
+object Tokenizer {
+    const val FLAG_PARAGRAPH_END = 1
+    const val FLAG_HEADING = 2
+    const val FLAG_SENTENCE_END = 4
+
+    /**
+     * Bump in the same change as any rule that alters the tokens produced
+     * for a given text; stored tokens from other rules are rebuilt.
+     */
+    const val RULES_VERSION = 4
+
+    /**
+     * Starts a heading line in extracted text. A Unicode noncharacter, so
+     * it never stands for anything a reader should see; the extractors drop
+     * it from body text, which leaves a literal `#` an ordinary word.
+     */
+    const val HEADING_MARKER = '\uFDD0'
+
+    /**
+     * Splits [text] into words. A blank line ends a paragraph. With
+     * [markdown], for text from the Markdown and EPUB extractors, a line
+     * starting with a [HEADING_MARKER] is a heading and the marker itself is
+     * dropped. The segmenter defaults to one picked from the text's script.
+     */
+    fun tokenize(
+        text: String,
+        markdown: Boolean = false,
+        segmenter: WordSegmenter = WordSegmenter.forText(text)
+    ): TokenStream {
+        val sink = TokenSink(segmenter)
+        scan(text, 0, text.length, ScanState(markdown)) { start, end, heading, breakBefore ->
+            sink.add(text, start, end, 0, heading, breakBefore)
+        }
+        return sink.toStream(text)
+    }
+
+    /**
+     * Tokenizes [text], a revision of [previous]'s text, copying the tokens
+     * of every paragraph [revision] matched instead of scanning it again.
+     * The result is the same as [tokenize] on [text]; [previous] must have
+     * been tokenized with the same [markdown] setting. Falls back to a full
+     * [tokenize] when the two versions call for different segmenters.
+     */
+    fun retokenize(previous: TokenStream, text: String, revision: TextRevision, markdown: Boolean = false): TokenStream {
+        val segmenter = WordSegmenter.forText(text)
+        if (segmenter::class != WordSegmenter.forText(previous.text)::class) return tokenize(text, markdown, segmenter)
+
+        val sink = TokenSink(segmenter)
+        val spans = TextRevision.paragraphSpans(text)
+        for (p in 0 until spans.size / 2) {
+            val start = spans[2 * p]
+            val end = spans[2 * p + 1]
+            val countBefore = sink.count
+            val oldStart = revision.oldStartOf(start)
+            if (oldStart >= 0) {
+                sink.copyFrom(previous, oldStart, oldStart + (end - start), start - oldStart)
+            } else {
+                // A paragraph scans the same alone as in place; see TextRevision.paragraphSpans
+                scan(text, start, end, ScanState(markdown)) { tokenStart, tokenEnd, heading, breakBefore ->
+                    sink.add(text, tokenStart, tokenEnd, 0, heading, breakBefore && sink.count > countBefore)
+                }
+            }
+            // Only the token before the next paragraph ends one, never the document's last
+            if (countBefore > 0 && sink.count > countBefore) sink.markParagraphEnd(countBefore - 1)
+        }
+        return sink.toStream(text)
+    }
+
+    /** Same count as `tokenize(text).size`, without building the offset arrays. */
+    fun countWords(
+        text: String,
+        markdown: Boolean = false,
+        segmenter: WordSegmenter = WordSegmenter.forText(text)
+    ): Int {
+        var count = 0
+        val countWord = WordSink { _, _ -> count++ }
+        scan(text, 0, text.length, ScanState(markdown)) { start, end, _, _ ->
+            segmenter.segment(text, start, end, countWord)
+        }
+        return count
+    }
+
+    /** Line and paragraph state carried between calls to [scan]; [markdown] enables [HEADING_MARKER] lines. */
+    internal class ScanState(val markdown: Boolean) {
+        var newlines = 0
+        var first = true
+        var headingLine = false
+        var pendingBreak = false
+    }
+
+    internal inline fun scan(
+        text: String,
+        from: Int,
+        to: Int,
+        state: ScanState,
+        onToken: (start: Int, end: Int, heading: Boolean, breakBefore: Boolean) -> Unit
+    ) {
+        var i = from
+        while (i < to) {
+            val c = text[i]
+            if (c.isWhitespace()) {
+                if (c == '\n') state.newlines++
+                i++
+                continue
+            }
+
+            val atLineStart = state.first || state.newlines > 0
+            if (state.newlines >= 2 || (state.newlines >= 1 && state.headingLine)) state.pendingBreak = true
+            if (atLineStart) state.headingLine = false
+            state.newlines = 0
+            state.first = false
+
+            val start = i
+            while (i < to && !text[i].isWhitespace()) i++
+
+            if (atLineStart && state.markdown && isHeadingMarker(text, start, i)) {
+                // A heading always starts its own block
+                state.pendingBreak = true
+                state.headingLine = true
+                continue
+            }
+
+            onToken(start, i, state.headingLine, state.pendingBreak)
+            state.pendingBreak = false
+        }
+    }
+
+    internal fun isHeadingMarker(text: String, start: Int, end: Int): Boolean =
+        end - start == 1 && text[start] == HEADING_MARKER
+}
+
+/**
+ * Tokenizes text that arrives in pieces, such as pages from an extractor, so
+ * words are indexed while the rest of the file is still being read. The
+ * result matches [Tokenizer.tokenize] on the concatenated text with the same
+ * [markdown] setting, except that a
+ * single run of more than 64k non-space characters may be cut at a piece
+ * boundary.
+ */
+class TokenStreamBuilder(
+    private val markdown: Boolean = false,
+    private val segmenter: WordSegmenter? = null
+) {
+    private val text = StringBuilder()
+    private val state = Tokenizer.ScanState(markdown)
+
+    // Runs without letters segment the same either way, so the sink starts on
+    // Whitespace until a piece with letters picks the real segmenter
+    private val sink = TokenSink(segmenter ?: WordSegmenter.Whitespace)
+    private var segmenterChosen = segmenter != null
+
+    // Trailing partial word of the last piece, re-scanned with the next one
+    private var carry = ""
+
+    val tokenCount: Int
+        get() = sink.count
+
+    fun append(piece: String) {
+        if (piece.isEmpty()) return
+        text.append(piece)
+        val chunk = if (carry.isEmpty()) piece else carry + piece
+        var safeEnd = chunk.length
+        while (safeEnd > 0 && !chunk[safeEnd - 1].isWhitespace()) safeEnd--
+        if (chunk.length - safeEnd > MAX_CARRY) safeEnd = chunk.length
+
+        scanInto(chunk, safeEnd, text.length - chunk.length)
+        carry = chunk.substring(safeEnd)
+    }
+
+    fun build(): TokenStream {
+        scanInto(carry, carry.length, text.length - carry.length)
+        carry = ""
+        val content = text.toString()
+        if (segmenter == null) {
+            // The first piece with letters may not be typical of the whole
+            // sample forText reads; redo the rare document where they disagree
+            val expected = WordSegmenter.forText(content)
+            if (expected::class != sink.segmenter::class) return Tokenizer.tokenize(content, markdown, expected)
+        }
+        return sink.toStream(content)
+    }
+
+    private fun scanInto(chunk: String, end: Int, base: Int) {
+        if (end == 0) return
+        if (!segmenterChosen && hasLetter(chunk, end)) {
+            sink.segmenter = WordSegmenter.forText(chunk)
+            segmenterChosen = true
+        }
+        Tokenizer.scan(chunk, 0, end, state) { start, tokenEnd, heading, breakBefore ->
+            sink.add(chunk, start, tokenEnd, base, heading, breakBefore)
+        }
+    }
+
+    private fun hasLetter(chunk: String, end: Int): Boolean {
+        for (i in 0 until end) {
+            if (Character.isLetter(chunk[i])) return true
+        }
+        return false
+    }
+
+    private companion object {
+        const val MAX_CARRY = 64 * 1024
+    }
+}
+
+/** Growable token arrays fed one whitespace run at a time. */
+private class TokenSink(var segmenter: WordSegmenter) : WordSink {
+    private var starts = IntArray(INITIAL_CAPACITY)
+    private var ends = IntArray(INITIAL_CAPACITY)
+    private var flags = ByteArray(INITIAL_CAPACITY)
+
+    var count = 0
+        private set
+
+    // Current run, read by word(); fields rather than captures keep it allocation-free
+    private var chunk = ""
+    private var base = 0
+    private var runHeading = false
+    private var runBreak = false
+
+    override fun word(start: Int, end: Int) {
+        if (runBreak && count > 0) {
+            flags[count - 1] = (flags[count - 1].toInt() or Tokenizer.FLAG_PARAGRAPH_END).toByte()
+        }
+        runBreak = false
+        ensureCapacity()
+        starts[count] = base + start
+        ends[count] = base + end
+        var tokenFlags = if (runHeading) Tokenizer.FLAG_HEADING else 0
+        if (Punctuation.endsSentence(chunk, start, end)) tokenFlags = tokenFlags or Tokenizer.FLAG_SENTENCE_END
+        flags[count] = tokenFlags.toByte()
+        count++
+    }
+
+    /** Adds the words of run chunk[start, end), whose offsets in the full text are shifted by [base]. */
+    fun add(chunk: String, start: Int, end: Int, base: Int, heading: Boolean, breakBefore: Boolean) {
+        this.chunk = chunk
+        this.base = base
+        runHeading = heading
+        runBreak = breakBefore
+        segmenter.segment(chunk, start, end, this)
+    }
+
+    /** Copies [source]'s tokens within [from, to), shifted by [shift], without their trailing paragraph end. */
+    fun copyFrom(source: TokenStream, from: Int, to: Int, shift: Int) {
+        val first = firstTokenAtOrAfter(source, from)
+        var i = first
+        while (i < source.size && source.end(i) <= to) {
+            ensureCapacity()
+            starts[count] = source.start(i) + shift
+            ends[count] = source.end(i) + shift
+            flags[count] = source.flagsAt(i).toByte()
+            count++
+            i++
+        }
+        if (i > first) {
+            flags[count - 1] = (flags[count - 1].toInt() and Tokenizer.FLAG_PARAGRAPH_END.inv()).toByte()
+        }
+    }
+
+    fun markParagraphEnd(index: Int) {
+        flags[index] = (flags[index].toInt() or Tokenizer.FLAG_PARAGRAPH_END).toByte()
+    }
+
+    private fun ensureCapacity() {
+        if (count == starts.size) {
+            val capacity = count * 2
+            starts = starts.copyOf(capacity)
+            ends = ends.copyOf(capacity)
+            flags = flags.copyOf(capacity)
+        }
+    }
+
+    private fun firstTokenAtOrAfter(source: TokenStream, offset: Int): Int {
+        var low = 0
+        var high = source.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (source.start(mid) < offset) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    fun toStream(text: String): TokenStream =
+        TokenStream(text, starts.copyOf(count), ends.copyOf(count), flags.copyOf(count))
+}
+
+private const val INITIAL_CAPACITY = 256
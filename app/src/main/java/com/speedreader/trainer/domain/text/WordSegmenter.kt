@@ -0,0 +1,124 @@
+package com.speedreader.trainer.domain.text
+
+import java.text.BreakIterator
+import java.text.StringCharacterIterator
+import java.util.Locale
+
+/** Receives word offsets as primitives, so reporting a word never boxes. */
+fun interface WordSink {
+    fun word(start: Int, end: Int)
+}
+
+/**
+ * Splits a whitespace-free run of text into words. The tokenizer finds runs on
+ * whitespace first and hands each one here, so scripts written without spaces
+ * (Chinese, Japanese, Thai, ...) still come out as one word per RSVP frame.
+ */
+interface WordSegmenter {
+    /** Reports each word inside text[start, end) to [sink], in order. */
+    fun segment(text: String, start: Int, end: Int, sink: WordSink)
+
+    /** The run is already a word: the fast path for space-delimited scripts. */
+    object Whitespace : WordSegmenter {
+        override fun segment(text: String, start: Int, end: Int, sink: WordSink) {
+            sink.word(start, end)
+        }
+    }
+
+    /**
+     * Dictionary-based word boundaries from [BreakIterator], applied only to
+     * runs that contain a non-space-delimited script. Punctuation segments are
+     * glued to the neighbouring word so sentence ends still land on a token.
+     * Holds a BreakIterator, so use one instance per thread.
+     */
+    class Dictionary(locale: Locale = Locale.ROOT) : WordSegmenter {
+        private val iterator = BreakIterator.getWordInstance(locale)
+
+        override fun segment(text: String, start: Int, end: Int, sink: WordSink) {
+            if (!containsUnspacedScript(text, start, end)) {
+                sink.word(start, end)
+                return
+            }
+            iterator.text = StringCharacterIterator(text, start, end, start)
+
+            var wordStart = -1
+            var wordEnd = -1
+            var hasLetters = false
+            var from = iterator.first()
+            var to = iterator.next()
+            while (to != BreakIterator.DONE) {
+                val letters = hasLetterOrDigit(text, from, to)
+                if (wordStart < 0) {
+                    wordStart = from
+                    hasLetters = letters
+                } else if (letters && hasLetters) {
+                    sink.word(wordStart, wordEnd)
+                    wordStart = from
+                } else {
+                    hasLetters = hasLetters || letters
+                }
+                wordEnd = to
+                from = to
+                to = iterator.next()
+            }
+            if (wordStart >= 0) sink.word(wordStart, wordEnd)
+        }
+
+        private fun hasLetterOrDigit(text: String, start: Int, end: Int): Boolean {
+            for (i in start until end) {
+                if (text[i].isLetterOrDigit()) return true
+            }
+            return false
+        }
+    }
+
+    companion object {
+        // Enough to classify a document from its opening pages
+        private const val SAMPLE_LETTERS = 4096
+        private const val UNSPACED_THRESHOLD = 0.2
+
+        /**
+         * Picks a segmenter for [text] by sampling its letters: documents where
+         * a meaningful share are in a script without spaces get [Dictionary].
+         */
+        fun forText(text: String): WordSegmenter {
+            var letters = 0
+            var unspaced = 0
+            var i = 0
+            while (i < text.length && letters < SAMPLE_LETTERS) {
+                val codePoint = text.codePointAt(i)
+                if (Character.isLetter(codePoint)) {
+                    letters++
+                    if (isUnspacedScript(codePoint)) unspaced++
+                }
+                i += Character.charCount(codePoint)
+            }
+            return if (letters > 0 && unspaced >= letters * UNSPACED_THRESHOLD) Dictionary() else Whitespace
+        }
+
+        internal fun containsUnspacedScript(text: String, start: Int, end: Int): Boolean {
+            var i = start
+            while (i < end) {
+                val codePoint = text.codePointAt(i)
+                if (isUnspacedScript(codePoint)) return true
+                i += Character.charCount(codePoint)
+            }
+            return false
+        }
+
+        private fun isUnspacedScript(codePoint: Int): Boolean {
+            if (codePoint < 0x0E00) return false
+            return when (Character.UnicodeScript.of(codePoint)) {
+                Character.UnicodeScript.HAN,
+                Character.UnicodeScript.HIRAGANA,
+                Character.UnicodeScript.KATAKANA,
+                Character.UnicodeScript.THAI,
+                Character.UnicodeScript.LAO,
+                Character.UnicodeScript.KHMER,
+                Character.UnicodeScript.MYANMAR,
+                Character.UnicodeScript.TIBETAN -> true
+                else -> false
+            }
+        }
+    }
+}
@@ -334,6 +334,7 @@ private fun DocumentCard(
                 imageVector = when (document.fileType.lowercase()) {
                     "pdf" -> Icons.Default.PictureAsPdf
                     "md" -> Icons.Default.Description
+                    "epub" -> Icons.Default.MenuBook
                     else -> Icons.Default.Article
                 },
                 contentDescription = null,
@@ -1,5 +1,8 @@
 package com.speedreader.trainer.ui.screens.document
 
+import android.net.Uri
+import androidx.activity.compose.rememberLauncherForActivityResult
+import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
@@ -12,10 +15,12 @@ import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextOverflow
 import androidx.compose.ui.unit.dp
 import androidx.hilt.navigation.compose.hiltViewModel
+import com.speedreader.trainer.domain.model.ImportJob
 import com.speedreader.trainer.domain.model.UserDocument
 
 @OptIn(ExperimentalMaterial3Api::class)
@@ -26,7 +31,24 @@ fun DocumentListScreen(
     viewModel: DocumentListViewModel = hiltViewModel()
 ) {
     val uiState by viewModel.uiState.collectAsState()
+    val context = LocalContext.current
     var documentToDelete by remember { mutableStateOf<UserDocument?>(null) }
+    var documentToUpdate by remember { mutableStateOf<UserDocument?>(null) }
+
+    val updatePicker = rememberLauncherForActivityResult(
+        contract = ActivityResultContracts.OpenDocument()
+    ) { uri: Uri? ->
+        val document = documentToUpdate
+        documentToUpdate = null
+        if (uri != null && document != null) {
+            val fileName = context.contentResolver.query(uri, null, null, null, null)?.use { cursor ->
+                val nameIndex = cursor.getColumnIndex(android.provider.OpenableColumns.DISPLAY_NAME)
+                cursor.moveToFirst()
+                cursor.getString(nameIndex)
+            } ?: "Unknown"
+            viewModel.updateDocument(document, uri, fileName)
+        }
+    }
 
     Scaffold(
         topBar = {
@@ -47,7 +69,7 @@ fun DocumentListScreen(
             ) {
                 CircularProgressIndicator()
             }
-        } else if (uiState.documents.isEmpty()) {
+        } else if (uiState.documents.isEmpty() && uiState.activeImports.isEmpty()) {
             Box(
                 modifier = Modifier
                     .fillMaxSize()
@@ -84,10 +106,27 @@ fun DocumentListScreen(
                 contentPadding = PaddingValues(16.dp),
                 verticalArrangement = Arrangement.spacedBy(12.dp)
             ) {
+                items(uiState.activeImports, key = { it.id }) { job ->
+                    ImportJobItem(
+                        job = job,
+                        onCancel = { viewModel.cancelImport(job.id) }
+                    )
+                }
                 items(uiState.documents) { document ->
                     DocumentListItem(
                         document = document,
                         onClick = { onSelectDocument(document.id) },
+                        onUpdate = {
+                            documentToUpdate = document
+                            updatePicker.launch(
+                                arrayOf(
+                                    "application/pdf",
+                                    "text/plain",
+                                    "text/markdown",
+                                    "application/epub+zip"
+                                )
+                            )
+                        },
                         onDelete = { documentToDelete = document }
                     )
                 }
@@ -95,6 +134,19 @@ fun DocumentListScreen(
         }
     }
 
+    uiState.error?.let { error ->
+        AlertDialog(
+            onDismissRequest = { viewModel.clearError() },
+            title = { Text("Can't Update Document") },
+            text = { Text(error) },
+            confirmButton = {
+                TextButton(onClick = { viewModel.clearError() }) {
+                    Text("OK")
+                }
+            }
+        )
+    }
+
     // Delete Confirmation Dialog
     documentToDelete?.let { document ->
         AlertDialog(
@@ -120,10 +172,81 @@ fun DocumentListScreen(
     }
 }
 
+@Composable
+private fun ImportJobItem(
+    job: ImportJob,
+    onCancel: () -> Unit
+) {
+    Card(
+        modifier = Modifier.fillMaxWidth(),
+        shape = RoundedCornerShape(12.dp)
+    ) {
+        Row(
+            modifier = Modifier
+                .padding(16.dp)
+                .fillMaxWidth(),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+            Icon(
+                imageVector = Icons.Default.CloudUpload,
+                contentDescription = null,
+                tint = MaterialTheme.colorScheme.primary,
+                modifier = Modifier.size(40.dp)
+            )
+
+            Spacer(modifier = Modifier.width(16.dp))
+
+            Column(
+                modifier = Modifier.weight(1f)
+            ) {
+                Text(
+                    text = job.title,
+                    style = MaterialTheme.typography.titleMedium,
+                    fontWeight = FontWeight.Medium,
+                    maxLines = 1,
+                    overflow = TextOverflow.Ellipsis
+                )
+                Text(
+                    text = when {
+                        job.state == ImportJob.State.QUEUED -> "Waiting to import…"
+                        job.pagesTotal > 0 -> "Importing ${job.pagesDone} of ${job.pagesTotal}"
+                        else -> "Importing…"
+                    },
+                    style = MaterialTheme.typography.bodySmall,
+                    color = MaterialTheme.colorScheme.onSurfaceVariant
+                )
+                Spacer(modifier = Modifier.height(4.dp))
+                if (job.pagesTotal > 0) {
+                    LinearProgressIndicator(
+                        progress = job.pagesDone.toFloat() / job.pagesTotal,
+                        modifier = Modifier
+                            .fillMaxWidth()
+                            .height(4.dp)
+                    )
+                } else {
+                    LinearProgressIndicator(
+                        modifier = Modifier
+                            .fillMaxWidth()
+                            .height(4.dp)
+                    )
+                }
+            }
+
+            IconButton(onClick = onCancel) {
+                Icon(
+                    imageVector = Icons.Default.Close,
+                    contentDescription = "Cancel import"
+                )
+            }
+        }
+    }
+}
+
 @Composable
 private fun DocumentListItem(
     document: UserDocument,
     onClick: () -> Unit,
+    onUpdate: () -> Unit,
     onDelete: () -> Unit
 ) {
     Card(
@@ -142,6 +265,7 @@ private fun DocumentListItem(
                 imageVector = when (document.fileType.lowercase()) {
                     "pdf" -> Icons.Default.PictureAsPdf
                     "md" -> Icons.Default.Description
+                    "epub" -> Icons.Default.MenuBook
                     else -> Icons.Default.Article
                 },
                 contentDescription = null,
@@ -187,6 +311,14 @@ private fun DocumentListItem(
                 }
             }
 
+            IconButton(onClick = onUpdate) {
+                Icon(
+                    imageVector = Icons.Default.Upload,
+                    contentDescription = "Upload new version",
+                    tint = MaterialTheme.colorScheme.onSurfaceVariant
+                )
+            }
+
             IconButton(onClick = onDelete) {
                 Icon(
                     imageVector = Icons.Default.Delete,
@@ -1,8 +1,11 @@
 package com.speedreader.trainer.ui.screens.document
 
+import android.net.Uri
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.speedreader.trainer.data.repository.DocumentRepository
+import com.speedreader.trainer.data.repository.IngestionJobRepository
+import com.speedreader.trainer.domain.model.ImportJob
 import com.speedreader.trainer.domain.model.UserDocument
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -13,13 +16,15 @@ import javax.inject.Inject
 
 data class DocumentListUiState(
     val documents: List<UserDocument> = emptyList(),
+    val activeImports: List<ImportJob> = emptyList(),
     val isLoading: Boolean = true,
     val error: String? = null
 )
 
 @HiltViewModel
 class DocumentListViewModel @Inject constructor(
-    private val documentRepository: DocumentRepository
+    private val documentRepository: DocumentRepository,
+    private val ingestionJobRepository: IngestionJobRepository
 ) : ViewModel() {
 
     private val _uiState = MutableStateFlow(DocumentListUiState())
@@ -27,6 +32,7 @@ class DocumentListViewModel @Inject constructor(
 
     init {
         loadDocuments()
+        observeImports()
     }
 
     private fun loadDocuments() {
@@ -40,6 +46,32 @@ class DocumentListViewModel @Inject constructor(
         }
     }
 
+    private fun observeImports() {
+        viewModelScope.launch {
+            ingestionJobRepository.activeJobsFlow().collect { jobs ->
+                _uiState.value = _uiState.value.copy(activeImports = jobs)
+            }
+        }
+    }
+
+    /** Queues replacing [document] with the file at [uri], keeping its reading position. */
+    fun updateDocument(document: UserDocument, uri: Uri, fileName: String) {
+        val fileType = IngestionJobRepository.fileTypeFor(fileName)
+        if (fileType.isEmpty()) {
+            _uiState.value = _uiState.value.copy(error = "Unsupported file type")
+            return
+        }
+        ingestionJobRepository.enqueueUpdate(document, uri, fileType)
+    }
+
+    fun clearError() {
+        _uiState.value = _uiState.value.copy(error = null)
+    }
+
+    fun cancelImport(importId: String) {
+        ingestionJobRepository.cancel(importId)
+    }
+
     fun deleteDocument(documentId: String) {
         viewModelScope.launch {
             documentRepository.deleteDocument(documentId)
@@ -21,6 +21,7 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.hilt.navigation.compose.hiltViewModel
+import com.speedreader.trainer.domain.model.IngestStage
 
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
@@ -88,7 +89,8 @@ fun DocumentUploadScreen(
                             arrayOf(
                                 "application/pdf",
                                 "text/plain",
-                                "text/markdown"
+                                "text/markdown",
+                                "application/epub+zip"
                             )
                         )
                     },
@@ -132,7 +134,7 @@ fun DocumentUploadScreen(
                             style = MaterialTheme.typography.bodyLarge
                         )
                         Text(
-                            text = "PDF, TXT, or MD files",
+                            text = "PDF, EPUB, TXT, or MD files",
                             style = MaterialTheme.typography.bodySmall,
                             color = MaterialTheme.colorScheme.onSurfaceVariant
                         )
@@ -182,7 +184,7 @@ fun DocumentUploadScreen(
             Spacer(modifier = Modifier.height(8.dp))
 
             Text(
-                text = "Supported formats: PDF, TXT, MD",
+                text = "Supported formats: PDF, EPUB, TXT, MD",
                 style = MaterialTheme.typography.bodySmall,
                 color = MaterialTheme.colorScheme.onSurfaceVariant,
                 textAlign = TextAlign.Center
@@ -206,6 +208,33 @@ fun DocumentUploadScreen(
                 Spacer(modifier = Modifier.height(16.dp))
             }
 
+            if (uiState.isUploading) {
+                if (uiState.pagesTotal > 0) {
+                    LinearProgressIndicator(
+                        progress = uiState.pagesDone.toFloat() / uiState.pagesTotal,
+                        modifier = Modifier.fillMaxWidth()
+                    )
+                } else {
+                    LinearProgressIndicator(modifier = Modifier.fillMaxWidth())
+                }
+                Spacer(modifier = Modifier.height(8.dp))
+                Text(
+                    text = when (uiState.stage) {
+                        IngestStage.EXTRACT, IngestStage.NORMALIZE -> if (uiState.pagesTotal > 0) {
+                            "Extracting ${uiState.pagesDone} of ${uiState.pagesTotal}"
+                        } else {
+                            "Extracting text…"
+                        }
+                        IngestStage.TOKENIZE -> "Indexing words…"
+                        IngestStage.PERSIST -> "Saving…"
+                        else -> "Reading file…"
+                    },
+                    style = MaterialTheme.typography.bodySmall,
+                    color = MaterialTheme.colorScheme.onSurfaceVariant
+                )
+                Spacer(modifier = Modifier.height(16.dp))
+            }
+
             Button(
                 onClick = { viewModel.uploadDocument() },
                 enabled = uiState.selectedUri != null && 
@@ -225,6 +254,12 @@ fun DocumentUploadScreen(
                     Text("Upload Document")
                 }
             }
+
+            if (uiState.isUploading) {
+                TextButton(onClick = { viewModel.cancelUpload() }) {
+                    Text("Cancel")
+                }
+            }
         }
     }
 }
@@ -1,14 +1,21 @@
 package com.speedreader.trainer.ui.screens.document
 
 import android.net.Uri
+import androidx.lifecycle.SavedStateHandle
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.speedreader.trainer.data.repository.DocumentRepository
+import com.speedreader.trainer.data.repository.IngestionJobRepository
+import com.speedreader.trainer.domain.model.ImportJob
+import com.speedreader.trainer.domain.model.IngestStage
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
-import kotlinx.coroutines.launch
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
 import javax.inject.Inject
 
 data class DocumentUploadUiState(
@@ -17,25 +24,34 @@ data class DocumentUploadUiState(
     val title: String = "",
     val fileType: String = "",
     val isUploading: Boolean = false,
+    val pagesDone: Int = 0,
+    val pagesTotal: Int = 0,
+    val stage: IngestStage? = null,
     val error: String? = null,
     val isSuccess: Boolean = false
 )
 
 @HiltViewModel
 class DocumentUploadViewModel @Inject constructor(
-    private val documentRepository: DocumentRepository
+    private val ingestionJobRepository: IngestionJobRepository,
+    private val savedStateHandle: SavedStateHandle
 ) : ViewModel() {
 
     private val _uiState = MutableStateFlow(DocumentUploadUiState())
     val uiState: StateFlow<DocumentUploadUiState> = _uiState.asStateFlow()
 
-    fun setSelectedFile(uri: Uri, fileName: String) {
-        val fileType = when {
-            fileName.endsWith(".pdf", ignoreCase = true) -> "pdf"
-            fileName.endsWith(".txt", ignoreCase = true) -> "txt"
-            fileName.endsWith(".md", ignoreCase = true) -> "md"
-            else -> ""
+    private var observeJob: Job? = null
+
+    init {
+        // The import outlives this screen; pick its status back up after recreation
+        savedStateHandle.get<String>(KEY_IMPORT_ID)?.let { importId ->
+            _uiState.value = _uiState.value.copy(isUploading = true)
+            observeImport(importId)
         }
+    }
+
+    fun setSelectedFile(uri: Uri, fileName: String) {
+        val fileType = IngestionJobRepository.fileTypeFor(fileName)
         
         val title = fileName.substringBeforeLast(".")
         
@@ -61,34 +77,58 @@ class DocumentUploadViewModel @Inject constructor(
             return
         }
 
-        viewModelScope.launch {
-            _uiState.value = state.copy(isUploading = true, error = null)
-            
-            val result = documentRepository.uploadDocument(
-                uri = uri,
-                title = state.title,
-                fileType = state.fileType
-            )
-            
-            result.fold(
-                onSuccess = {
-                    _uiState.value = _uiState.value.copy(
+        _uiState.value = state.copy(isUploading = true, pagesDone = 0, pagesTotal = 0, stage = null, error = null)
+        val importId = ingestionJobRepository.enqueue(uri, state.title, state.fileType)
+        savedStateHandle[KEY_IMPORT_ID] = importId
+        observeImport(importId)
+    }
+
+    private fun observeImport(importId: String) {
+        observeJob?.cancel()
+        observeJob = ingestionJobRepository.jobFlow(importId)
+            .filterNotNull()
+            .onEach { job ->
+                _uiState.value = when (job.state) {
+                    ImportJob.State.QUEUED, ImportJob.State.RUNNING -> _uiState.value.copy(
+                        isUploading = true,
+                        stage = job.stage,
+                        pagesDone = job.pagesDone,
+                        pagesTotal = job.pagesTotal
+                    )
+                    ImportJob.State.SUCCEEDED -> _uiState.value.copy(
                         isUploading = false,
                         isSuccess = true
                     )
-                },
-                onFailure = { exception ->
-                    _uiState.value = _uiState.value.copy(
+                    ImportJob.State.FAILED -> _uiState.value.copy(
                         isUploading = false,
-                        error = exception.message ?: "Upload failed"
+                        error = job.error ?: "Upload failed"
                     )
+                    ImportJob.State.CANCELLED -> _uiState.value.copy(isUploading = false)
                 }
-            )
-        }
+                if (job.isFinished) savedStateHandle.remove<String>(KEY_IMPORT_ID)
+            }
+            .catch { exception ->
+                _uiState.value = _uiState.value.copy(
+                    isUploading = false,
+                    error = exception.message ?: "Upload failed"
+                )
+            }
+            .launchIn(viewModelScope)
+    }
+
+    fun cancelUpload() {
+        savedStateHandle.get<String>(KEY_IMPORT_ID)?.let { ingestionJobRepository.cancel(it) }
+        savedStateHandle.remove<String>(KEY_IMPORT_ID)
+        observeJob?.cancel()
+        observeJob = null
+        _uiState.value = _uiState.value.copy(isUploading = false, pagesDone = 0, pagesTotal = 0, stage = null)
     }
 
     fun clearError() {
         _uiState.value = _uiState.value.copy(error = null)
     }
-}
 
+    companion object {
+        private const val KEY_IMPORT_ID = "import_id"
+    }
+}
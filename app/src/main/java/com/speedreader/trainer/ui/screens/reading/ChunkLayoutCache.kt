@@ -0,0 +1,118 @@
+package com.speedreader.trainer.ui.screens.reading
+
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.text.ExperimentalTextApi
+import androidx.compose.ui.text.TextLayoutResult
+import androidx.compose.ui.text.TextMeasurer
+import com.speedreader.trainer.domain.reading.ChunkIndex
+import com.speedreader.trainer.domain.reading.ChunkSlots
+
+/**
+ * Measured chunk layouts for one [ChunkIndex], font size and colour pair,
+ * keyed by chunk start, so a chunk shaped ahead of time by [prefetch] on a
+ * background thread is drawn on the tick without touching text layout or
+ * allocating. Passing a different index or style starts the cache over.
+ * Safe to use from several threads; each thread should pass its own
+ * [TextMeasurer].
+ */
+@OptIn(ExperimentalTextApi::class)
+class ChunkLayoutCache(maxEntries: Int = DEFAULT_MAX_ENTRIES) {
+
+    private val layouts = ChunkSlots<TextLayoutResult>(maxEntries)
+
+    // What the cached layouts were measured for; guarded by layouts
+    private var chunks: ChunkIndex? = null
+    private var fontSize = 0
+    private var color = Color.Unspecified
+    private var pivotColor = Color.Unspecified
+
+    // Start of the last chunk already prefetched; avoids re-walking the window every tick
+    @Volatile
+    private var prefetchedThrough = -1
+
+    fun get(
+        textMeasurer: TextMeasurer,
+        chunks: ChunkIndex,
+        index: Int,
+        fontSize: Int,
+        color: Color,
+        pivotColor: Color
+    ): TextLayoutResult {
+        synchronized(layouts) {
+            use(chunks, fontSize, color, pivotColor)
+            layouts[index]?.let { return it }
+        }
+        return measure(textMeasurer, chunks, index, fontSize, color, pivotColor)
+    }
+
+    /**
+     * Measures the next [lookahead] chunks after [index], continuing from the
+     * previous call when the cursor is still on the same chunk grid. Does
+     * nothing until [get] has been called with the same index and style, so a
+     * late call for a style the screen has left can't evict the current one.
+     * Run off the main thread.
+     */
+    fun prefetch(
+        textMeasurer: TextMeasurer,
+        chunks: ChunkIndex,
+        index: Int,
+        lookahead: Int,
+        fontSize: Int,
+        color: Color,
+        pivotColor: Color
+    ) {
+        if (!synchronized(layouts) { isFor(chunks, fontSize, color, pivotColor) }) return
+        val step = chunks.chunkSize
+        val last = prefetchedThrough
+        val onGrid = last >= index && (last - index) % step == 0
+        if (onGrid && last - index >= step * lookahead / 2) return
+
+        var next = if (onGrid) last + step else index + step
+        val horizon = index + step * lookahead
+        while (next <= horizon && next < chunks.wordCount) {
+            val cached = synchronized(layouts) {
+                // The screen moved on to another index or style; stop shaping for the old one
+                if (!isFor(chunks, fontSize, color, pivotColor)) return
+                layouts[next] != null
+            }
+            if (!cached) measure(textMeasurer, chunks, next, fontSize, color, pivotColor)
+            prefetchedThrough = next
+            next += step
+        }
+    }
+
+    private fun measure(
+        textMeasurer: TextMeasurer,
+        chunks: ChunkIndex,
+        index: Int,
+        fontSize: Int,
+        color: Color,
+        pivotColor: Color
+    ): TextLayoutResult {
+        val layout = measureChunk(textMeasurer, chunks.chunkAt(index), chunks.pivotAt(index), fontSize, color, pivotColor)
+        synchronized(layouts) {
+            if (isFor(chunks, fontSize, color, pivotColor)) layouts[index] = layout
+        }
+        return layout
+    }
+
+    private fun use(chunks: ChunkIndex, fontSize: Int, color: Color, pivotColor: Color) {
+        if (isFor(chunks, fontSize, color, pivotColor)) return
+        this.chunks = chunks
+        this.fontSize = fontSize
+        this.color = color
+        this.pivotColor = pivotColor
+        layouts.reset(chunks.chunkSize)
+        prefetchedThrough = -1
+    }
+
+    private fun isFor(chunks: ChunkIndex, fontSize: Int, color: Color, pivotColor: Color): Boolean =
+        chunks === this.chunks && fontSize == this.fontSize &&
+            color == this.color && pivotColor == this.pivotColor
+
+    companion object {
+        // Power of two, and more than the prefetch window so it never evicts itself
+        const val DEFAULT_MAX_ENTRIES = 64
+        const val DEFAULT_LOOKAHEAD = 16
+    }
+}
@@ -0,0 +1,93 @@
+package com.speedreader.trainer.ui.screens.reading
+
+import android.view.Choreographer
+import com.speedreader.trainer.domain.model.DisplayTimingSummary
+
+/**
+ * Measures how late each chunk actually reaches the screen relative to its
+ * scheduled time, and counts frames dropped while playing. Lateness goes into a
+ * fixed 1 ms-bucket histogram and the frame callback is reused, so recording
+ * allocates nothing. All calls must be made on the main thread.
+ */
+class PlaybackTelemetry : Choreographer.FrameCallback {
+
+    private val histogram = IntArray(BUCKET_COUNT)
+    private var measured = 0
+    private var missedFrames = 0
+
+    private var pendingScheduledNanos = NONE
+    private var lastFrameNanos = NONE
+    // Vsync timestamps are multiples of the refresh period, so the shortest
+    // interval seen calibrates this to 90/120 Hz displays
+    private var frameNanos = DEFAULT_FRAME_NANOS
+    private var running = false
+
+    fun start() {
+        if (running) return
+        running = true
+        lastFrameNanos = NONE
+        Choreographer.getInstance().postFrameCallback(this)
+    }
+
+    fun stop() {
+        if (!running) return
+        running = false
+        pendingScheduledNanos = NONE
+        Choreographer.getInstance().removeFrameCallback(this)
+    }
+
+    /** Called when the cursor advances to a chunk that was due at [scheduledNanos] (System.nanoTime). */
+    fun onChunkScheduled(scheduledNanos: Long) {
+        pendingScheduledNanos = scheduledNanos
+    }
+
+    override fun doFrame(frameTimeNanos: Long) {
+        if (!running) return
+
+        if (lastFrameNanos != NONE) {
+            val interval = frameTimeNanos - lastFrameNanos
+            if (interval in MIN_FRAME_NANOS until frameNanos) frameNanos = interval
+            if (interval > frameNanos * 3 / 2) {
+                missedFrames += ((interval + frameNanos / 2) / frameNanos - 1).toInt()
+            }
+        }
+        lastFrameNanos = frameTimeNanos
+
+        if (pendingScheduledNanos != NONE) {
+            val latenessMs = ((frameTimeNanos - pendingScheduledNanos) / NANOS_PER_MILLI).coerceAtLeast(0)
+            histogram[latenessMs.coerceAtMost(BUCKET_COUNT - 1L).toInt()]++
+            measured++
+            pendingScheduledNanos = NONE
+        }
+
+        Choreographer.getInstance().postFrameCallback(this)
+    }
+
+    fun summary(): DisplayTimingSummary = DisplayTimingSummary(
+        p50JitterMs = percentile(0.50),
+        p95JitterMs = percentile(0.95),
+        p99JitterMs = percentile(0.99),
+        chunksMeasured = measured,
+        missedFrames = missedFrames
+    )
+
+    private fun percentile(fraction: Double): Float {
+        if (measured == 0) return 0f
+        val rank = kotlin.math.ceil(measured * fraction).toInt().coerceAtLeast(1)
+        var seen = 0
+        for (bucket in histogram.indices) {
+            seen += histogram[bucket]
+            if (seen >= rank) return bucket.toFloat()
+        }
+        return (BUCKET_COUNT - 1).toFloat()
+    }
+
+    companion object {
+        private const val NONE = Long.MIN_VALUE
+        private const val NANOS_PER_MILLI = 1_000_000L
+        private const val DEFAULT_FRAME_NANOS = 16_666_667L
+        private const val MIN_FRAME_NANOS = 4_000_000L
+        // 1 ms buckets up to 249 ms; anything later lands in the last bucket
+        private const val BUCKET_COUNT = 250
+    }
+}
@@ -0,0 +1,23 @@
+package com.speedreader.trainer.ui.screens.reading
+
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.SideEffect
+import androidx.compose.runtime.staticCompositionLocalOf
+
+/** Receives the name of each probed scope as its composition is applied; unset outside tests. */
+internal val LocalRecompositionProbe = staticCompositionLocalOf<((String) -> Unit)?> { null }
+
+/**
+ * Reports [name] to [LocalRecompositionProbe] each time the calling scope
+ * composes, so tests can check which scopes a state change reaches. Inline
+ * so it counts the caller's scope rather than one of its own that could be
+ * skipped; with no probe set it only reads the local.
+ */
+@Suppress("NOTHING_TO_INLINE")
+@Composable
+internal inline fun RecompositionProbe(name: String) {
+    val probe = LocalRecompositionProbe.current
+    if (probe != null) {
+        SideEffect { probe(name) }
+    }
+}
@@ -0,0 +1,100 @@
+package com.speedreader.trainer.ui.screens.reading
+
+import androidx.compose.foundation.Canvas
+import androidx.compose.runtime.Composable
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.geometry.Offset
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.text.AnnotatedString
+import androidx.compose.ui.text.ExperimentalTextApi
+import androidx.compose.ui.text.SpanStyle
+import androidx.compose.ui.text.TextLayoutResult
+import androidx.compose.ui.text.TextMeasurer
+import androidx.compose.ui.text.TextStyle
+import androidx.compose.ui.text.drawText
+import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.text.rememberTextMeasurer
+import androidx.compose.ui.unit.dp
+import androidx.compose.ui.unit.sp
+import com.speedreader.trainer.domain.reading.ChunkIndex
+
+/**
+ * Draws the chunk starting at word [index] so that its pivot letter always
+ * sits on the same vertical guide, instead of re-centring every word by its
+ * length. Chunks too wide to pivot-align on screen fall back to plain
+ * centring. The chunk is addressed by position rather than passed as text, so
+ * a tick whose layout is already cached reads no strings at all.
+ */
+@OptIn(ExperimentalTextApi::class)
+@Composable
+fun RsvpWordCanvas(
+    chunks: ChunkIndex,
+    index: Int,
+    fontSize: Int,
+    color: Color,
+    pivotColor: Color,
+    layoutCache: ChunkLayoutCache,
+    modifier: Modifier = Modifier
+) {
+    // Layouts are shared with the background prefetcher through the cache;
+    // this measurer only shapes chunks it hasn't reached yet
+    val textMeasurer = rememberTextMeasurer(cacheSize = 0)
+    val layout = layoutCache.get(textMeasurer, chunks, index, fontSize, color, pivotColor)
+    val pivot = chunks.pivotAt(index)
+    val length = layout.layoutInput.text.length
+
+    Canvas(modifier = modifier) {
+        val guideX = size.width * PIVOT_POSITION
+        val margin = 24.dp.toPx()
+
+        val x = if (layout.size.width > size.width - 2 * margin || length == 0) {
+            (size.width - layout.size.width) / 2
+        } else {
+            val box = layout.getBoundingBox(pivot.coerceIn(0, length - 1))
+            (guideX - (box.left + box.right) / 2)
+                .coerceIn(margin, size.width - margin - layout.size.width)
+        }
+        val y = (size.height - layout.size.height) / 2
+
+        // Fixation guides above and below the pivot
+        val guideLength = 8.dp.toPx()
+        val guideColor = color.copy(alpha = 0.3f)
+        drawLine(guideColor, Offset(guideX, y - guideLength), Offset(guideX, y), 2.dp.toPx())
+        drawLine(
+            guideColor,
+            Offset(guideX, y + layout.size.height),
+            Offset(guideX, y + layout.size.height + guideLength),
+            2.dp.toPx()
+        )
+
+        drawText(layout, topLeft = Offset(x, y))
+    }
+}
+
+@OptIn(ExperimentalTextApi::class)
+internal fun measureChunk(
+    textMeasurer: TextMeasurer,
+    chunk: CharSequence,
+    pivot: Int,
+    fontSize: Int,
+    color: Color,
+    pivotColor: Color
+): TextLayoutResult {
+    val text = chunk.toString()
+    val spans = if (text.isEmpty()) {
+        emptyList()
+    } else {
+        val at = pivot.coerceIn(0, text.length - 1)
+        listOf(AnnotatedString.Range(SpanStyle(color = pivotColor), at, at + 1))
+    }
+    return textMeasurer.measure(
+        text = AnnotatedString(text, spans),
+        style = TextStyle(color = color, fontSize = fontSize.sp, fontWeight = FontWeight.Bold),
+        softWrap = false,
+        maxLines = 1
+    )
+}
+
+// Fraction of the width where the pivot sits; a little left of centre since
+// the rest of a word extends further to the right than to the left
+private const val PIVOT_POSITION = 0.42f
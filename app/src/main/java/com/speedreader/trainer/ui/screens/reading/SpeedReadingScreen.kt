@@ -10,13 +10,25 @@ import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.platform.LocalFontFamilyResolver
+import androidx.compose.ui.platform.LocalLayoutDirection
+import androidx.compose.ui.platform.LocalLifecycleOwner
+import androidx.compose.ui.text.ExperimentalTextApi
+import androidx.compose.ui.text.TextMeasurer
 import androidx.compose.ui.text.font.FontWeight
-import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
-import androidx.compose.ui.unit.sp
 import androidx.hilt.navigation.compose.hiltViewModel
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import com.speedreader.trainer.BuildConfig
 import com.speedreader.trainer.ui.theme.ReadingBackground
 import com.speedreader.trainer.ui.theme.ReadingBackgroundDark
+import com.speedreader.trainer.ui.theme.RsvpPivot
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.withContext
 
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
@@ -27,11 +39,24 @@ fun SpeedReadingScreen(
     viewModel: SpeedReadingViewModel = hiltViewModel()
 ) {
     val uiState by viewModel.uiState.collectAsState()
+    // Kept as a State and only dereferenced in leaf composables or derived state,
+    // so per-tick cursor changes don't recompose the whole screen
+    val cursor = viewModel.cursor.collectAsState()
+    val hasStarted by remember { derivedStateOf { cursor.value > 0 } }
 
     LaunchedEffect(documentId) {
         viewModel.loadDocument(documentId)
     }
 
+    val lifecycleOwner = LocalLifecycleOwner.current
+    DisposableEffect(lifecycleOwner) {
+        val observer = LifecycleEventObserver { _, event ->
+            if (event == Lifecycle.Event.ON_STOP) viewModel.onBackgrounded()
+        }
+        lifecycleOwner.lifecycle.addObserver(observer)
+        onDispose { lifecycleOwner.lifecycle.removeObserver(observer) }
+    }
+
     val backgroundColor = if (uiState.readingDarkModeEnabled) {
         ReadingBackgroundDark
     } else {
@@ -50,7 +75,7 @@ fun SpeedReadingScreen(
             onDismissRequest = { viewModel.startFromBeginning() },
             title = { Text("Continue Reading?") },
             text = { 
-                Text("You've previously read ${uiState.savedProgress} words (${(uiState.savedProgress * 100 / uiState.words.size.coerceAtLeast(1))}%). Would you like to continue where you left off?")
+                Text("You've previously read ${uiState.savedProgress} words (${(uiState.savedProgress * 100 / uiState.wordCount.coerceAtLeast(1))}%). Would you like to continue where you left off?")
             },
             confirmButton = {
                 TextButton(onClick = { viewModel.continueFromSaved() }) {
@@ -75,7 +100,15 @@ fun SpeedReadingScreen(
                     }
                 },
                 actions = {
-                    if (uiState.currentWordIndex > 0 || uiState.isFinished) {
+                    if (uiState.hasChapters && !uiState.isPlaying) {
+                        IconButton(onClick = { viewModel.goBackToChapterStart() }) {
+                            Icon(Icons.Default.NavigateBefore, contentDescription = "Previous chapter")
+                        }
+                        IconButton(onClick = { viewModel.skipForwardToNextChapter() }) {
+                            Icon(Icons.Default.NavigateNext, contentDescription = "Next chapter")
+                        }
+                    }
+                    if (hasStarted || uiState.isFinished) {
                         TextButton(
                             onClick = {
                                 val (sessionId, shouldShowQuiz) = viewModel.finishReading()
@@ -107,238 +140,439 @@ fun SpeedReadingScreen(
                 )
             }
         } else {
-            Column(
+            ReadingContent(
+                uiState = uiState,
+                cursor = cursor,
+                playbackStats = viewModel.playbackStats,
+                controls = viewModel,
+                backgroundColor = backgroundColor,
+                contentColor = contentColor,
                 modifier = Modifier
                     .fillMaxSize()
                     .padding(padding)
-            ) {
-                // Progress
-                LinearProgressIndicator(
-                    progress = uiState.progress,
-                    modifier = Modifier.fillMaxWidth()
-                )
+            )
+        }
+    }
+}
+
+/**
+ * Progress, word display and controls for a loaded document. The cursor is
+ * taken as a State and only read by the leaves that show it, so a tick
+ * recomposes the word display, the counter and, when the percent changes,
+ * the progress bar and label; never this scope or the controls.
+ */
+@Composable
+internal fun ReadingContent(
+    uiState: SpeedReadingUiState,
+    cursor: State<Int>,
+    playbackStats: StateFlow<PlaybackStats>,
+    controls: ReadingControls,
+    backgroundColor: Color,
+    contentColor: Color,
+    modifier: Modifier = Modifier
+) {
+    RecompositionProbe("ReadingContent")
+    val wordCount = uiState.wordCount
+    val progressPercent = remember(wordCount) {
+        derivedStateOf { if (wordCount > 0) cursor.value * 100 / wordCount else 0 }
+    }
+
+    Column(modifier = modifier) {
+        ReadingProgressBar(
+            progressPercent = progressPercent,
+            isPlaying = uiState.isPlaying,
+            onSeek = { controls.seekToFraction(it) }
+        )
 
-                // Word Display Area
-                Box(
+        // Word Display Area
+        WordDisplay(
+            cursor = cursor,
+            uiState = uiState,
+            backgroundColor = backgroundColor,
+            contentColor = contentColor,
+            modifier = Modifier
+                .weight(1f)
+                .fillMaxWidth()
+        ) {
+            if (BuildConfig.DEBUG) {
+                DisplayTimingOverlay(
+                    playbackStats = playbackStats,
+                    color = contentColor,
                     modifier = Modifier
-                        .weight(1f)
-                        .fillMaxWidth()
-                        .background(backgroundColor),
-                    contentAlignment = Alignment.Center
+                        .align(Alignment.TopStart)
+                        .padding(8.dp)
+                )
+            }
+        }
+
+        // Controls
+        Card(
+            modifier = Modifier.fillMaxWidth(),
+            shape = androidx.compose.foundation.shape.RoundedCornerShape(topStart = 24.dp, topEnd = 24.dp)
+        ) {
+            Column(
+                modifier = Modifier.padding(16.dp)
+            ) {
+                // WPM Slider
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    verticalAlignment = Alignment.CenterVertically
                 ) {
                     Text(
-                        text = uiState.currentChunk,
-                        fontSize = uiState.fontSize.sp,
-                        fontWeight = FontWeight.Bold,
-                        textAlign = TextAlign.Center,
-                        color = contentColor,
-                        modifier = Modifier.padding(horizontal = 24.dp)
+                        text = "Speed",
+                        style = MaterialTheme.typography.bodyMedium
+                    )
+                    Slider(
+                        value = uiState.wpm.toFloat(),
+                        onValueChange = { controls.setWpm(it.toInt()) },
+                        valueRange = 100f..1000f,
+                        modifier = Modifier
+                            .weight(1f)
+                            .padding(horizontal = 8.dp)
+                    )
+                    Text(
+                        text = "${uiState.wpm} WPM",
+                        style = MaterialTheme.typography.bodyMedium,
+                        fontWeight = FontWeight.Bold
                     )
                 }
 
-                // Controls
-                Card(
+                // Font Size Slider
+                Row(
                     modifier = Modifier.fillMaxWidth(),
-                    shape = androidx.compose.foundation.shape.RoundedCornerShape(topStart = 24.dp, topEnd = 24.dp)
+                    verticalAlignment = Alignment.CenterVertically
                 ) {
-                    Column(
-                        modifier = Modifier.padding(16.dp)
-                    ) {
-                        // WPM Slider
-                        Row(
-                            modifier = Modifier.fillMaxWidth(),
-                            verticalAlignment = Alignment.CenterVertically
-                        ) {
-                            Text(
-                                text = "Speed",
-                                style = MaterialTheme.typography.bodyMedium
-                            )
-                            Slider(
-                                value = uiState.wpm.toFloat(),
-                                onValueChange = { viewModel.setWpm(it.toInt()) },
-                                valueRange = 100f..1000f,
-                                modifier = Modifier
-                                    .weight(1f)
-                                    .padding(horizontal = 8.dp)
-                            )
-                            Text(
-                                text = "${uiState.wpm} WPM",
-                                style = MaterialTheme.typography.bodyMedium,
-                                fontWeight = FontWeight.Bold
-                            )
+                    Text(
+                        text = "Size",
+                        style = MaterialTheme.typography.bodyMedium
+                    )
+                    Slider(
+                        value = uiState.fontSize.toFloat(),
+                        onValueChange = { controls.setFontSize(it.toInt()) },
+                        valueRange = 24f..72f,
+                        modifier = Modifier
+                            .weight(1f)
+                            .padding(horizontal = 8.dp)
+                    )
+                    Text(
+                        text = "${uiState.fontSize}",
+                        style = MaterialTheme.typography.bodyMedium,
+                        fontWeight = FontWeight.Bold
+                    )
+                }
+
+                // Chunking Controls
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    verticalAlignment = Alignment.CenterVertically,
+                    horizontalArrangement = Arrangement.SpaceBetween
+                ) {
+                    Row(verticalAlignment = Alignment.CenterVertically) {
+                        Text(
+                            text = "Chunking",
+                            style = MaterialTheme.typography.bodyMedium
+                        )
+                        Spacer(modifier = Modifier.width(8.dp))
+                        Switch(
+                            checked = uiState.chunkingEnabled,
+                            onCheckedChange = { controls.setChunkingEnabled(it) }
+                        )
+                    }
+                    
+                    if (uiState.chunkingEnabled) {
+                        Row(verticalAlignment = Alignment.CenterVertically) {
+                            Text("Words: ", style = MaterialTheme.typography.bodySmall)
+                            (2..5).forEach { size ->
+                                FilterChip(
+                                    selected = uiState.chunkSize == size,
+                                    onClick = { controls.setChunkSize(size) },
+                                    label = { Text("$size") },
+                                    modifier = Modifier.padding(horizontal = 2.dp)
+                                )
+                            }
                         }
+                    }
+                }
 
-                        // Font Size Slider
-                        Row(
-                            modifier = Modifier.fillMaxWidth(),
-                            verticalAlignment = Alignment.CenterVertically
+                Spacer(modifier = Modifier.height(16.dp))
+
+                // Navigation and Play Controls
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    horizontalArrangement = Arrangement.SpaceEvenly,
+                    verticalAlignment = Alignment.CenterVertically
+                ) {
+                    // Go to paragraph start
+                    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                        IconButton(
+                            onClick = { controls.goBackToParagraphStart() },
+                            enabled = !uiState.isPlaying
                         ) {
-                            Text(
-                                text = "Size",
-                                style = MaterialTheme.typography.bodyMedium
-                            )
-                            Slider(
-                                value = uiState.fontSize.toFloat(),
-                                onValueChange = { viewModel.setFontSize(it.toInt()) },
-                                valueRange = 24f..72f,
-                                modifier = Modifier
-                                    .weight(1f)
-                                    .padding(horizontal = 8.dp)
+                            Icon(
+                                imageVector = Icons.Default.FastRewind,
+                                contentDescription = "Paragraph start",
+                                tint = if (!uiState.isPlaying) 
+                                    MaterialTheme.colorScheme.primary 
+                                else 
+                                    MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
                             )
-                            Text(
-                                text = "${uiState.fontSize}",
-                                style = MaterialTheme.typography.bodyMedium,
-                                fontWeight = FontWeight.Bold
+                        }
+                        Text(
+                            text = "Para",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = MaterialTheme.colorScheme.onSurfaceVariant
+                        )
+                    }
+                    
+                    // Go to sentence start
+                    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                        IconButton(
+                            onClick = { controls.goBackToSentenceStart() },
+                            enabled = !uiState.isPlaying
+                        ) {
+                            Icon(
+                                imageVector = Icons.Default.SkipPrevious,
+                                contentDescription = "Sentence start",
+                                tint = if (!uiState.isPlaying) 
+                                    MaterialTheme.colorScheme.primary 
+                                else 
+                                    MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
                             )
                         }
-
-                        // Chunking Controls
-                        Row(
-                            modifier = Modifier.fillMaxWidth(),
-                            verticalAlignment = Alignment.CenterVertically,
-                            horizontalArrangement = Arrangement.SpaceBetween
+                        Text(
+                            text = "Sentence",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = MaterialTheme.colorScheme.onSurfaceVariant
+                        )
+                    }
+                    
+                    // Go back one word/chunk
+                    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                        IconButton(
+                            onClick = { controls.goBackOneWord() },
+                            enabled = !uiState.isPlaying
                         ) {
-                            Row(verticalAlignment = Alignment.CenterVertically) {
-                                Text(
-                                    text = "Chunking",
-                                    style = MaterialTheme.typography.bodyMedium
-                                )
-                                Spacer(modifier = Modifier.width(8.dp))
-                                Switch(
-                                    checked = uiState.chunkingEnabled,
-                                    onCheckedChange = { viewModel.setChunkingEnabled(it) }
-                                )
-                            }
-                            
-                            if (uiState.chunkingEnabled) {
-                                Row(verticalAlignment = Alignment.CenterVertically) {
-                                    Text("Words: ", style = MaterialTheme.typography.bodySmall)
-                                    (2..5).forEach { size ->
-                                        FilterChip(
-                                            selected = uiState.chunkSize == size,
-                                            onClick = { viewModel.setChunkSize(size) },
-                                            label = { Text("$size") },
-                                            modifier = Modifier.padding(horizontal = 2.dp)
-                                        )
-                                    }
-                                }
-                            }
+                            Icon(
+                                imageVector = Icons.Default.Replay,
+                                contentDescription = "Back one",
+                                tint = if (!uiState.isPlaying) 
+                                    MaterialTheme.colorScheme.primary 
+                                else 
+                                    MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
+                            )
                         }
+                        Text(
+                            text = "Back",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = MaterialTheme.colorScheme.onSurfaceVariant
+                        )
+                    }
 
-                        Spacer(modifier = Modifier.height(16.dp))
-
-                        // Navigation and Play Controls
-                        Row(
-                            modifier = Modifier.fillMaxWidth(),
-                            horizontalArrangement = Arrangement.SpaceEvenly,
-                            verticalAlignment = Alignment.CenterVertically
+                    // Play/Pause Button
+                    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                        FloatingActionButton(
+                            onClick = {
+                                if (uiState.isPlaying) controls.pause() else controls.play()
+                            },
+                            shape = CircleShape,
+                            containerColor = MaterialTheme.colorScheme.primary
                         ) {
-                            // Go to sentence start
-                            Column(horizontalAlignment = Alignment.CenterHorizontally) {
-                                IconButton(
-                                    onClick = { viewModel.goBackToSentenceStart() },
-                                    enabled = !uiState.isPlaying
-                                ) {
-                                    Icon(
-                                        imageVector = Icons.Default.SkipPrevious,
-                                        contentDescription = "Sentence start",
-                                        tint = if (!uiState.isPlaying) 
-                                            MaterialTheme.colorScheme.primary 
-                                        else 
-                                            MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
-                                    )
-                                }
-                                Text(
-                                    text = "Sentence",
-                                    style = MaterialTheme.typography.labelSmall,
-                                    color = MaterialTheme.colorScheme.onSurfaceVariant
-                                )
-                            }
-                            
-                            // Go back one word/chunk
-                            Column(horizontalAlignment = Alignment.CenterHorizontally) {
-                                IconButton(
-                                    onClick = { viewModel.goBackOneWord() },
-                                    enabled = !uiState.isPlaying
-                                ) {
-                                    Icon(
-                                        imageVector = Icons.Default.Replay,
-                                        contentDescription = "Back one",
-                                        tint = if (!uiState.isPlaying) 
-                                            MaterialTheme.colorScheme.primary 
-                                        else 
-                                            MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
-                                    )
-                                }
-                                Text(
-                                    text = "Back",
-                                    style = MaterialTheme.typography.labelSmall,
-                                    color = MaterialTheme.colorScheme.onSurfaceVariant
-                                )
-                            }
-
-                            // Play/Pause Button
-                            Column(horizontalAlignment = Alignment.CenterHorizontally) {
-                                FloatingActionButton(
-                                    onClick = {
-                                        if (uiState.isPlaying) viewModel.pause() else viewModel.play()
-                                    },
-                                    shape = CircleShape,
-                                    containerColor = MaterialTheme.colorScheme.primary
-                                ) {
-                                    Icon(
-                                        imageVector = if (uiState.isPlaying) Icons.Default.Pause else Icons.Default.PlayArrow,
-                                        contentDescription = if (uiState.isPlaying) "Pause" else "Play",
-                                        modifier = Modifier.size(32.dp)
-                                    )
-                                }
-                            }
-                            
-                            // Skip forward one word/chunk
-                            Column(horizontalAlignment = Alignment.CenterHorizontally) {
-                                IconButton(
-                                    onClick = { viewModel.skipForwardOneWord() },
-                                    enabled = !uiState.isPlaying
-                                ) {
-                                    Icon(
-                                        imageVector = Icons.Default.Forward,
-                                        contentDescription = "Forward one",
-                                        tint = if (!uiState.isPlaying) 
-                                            MaterialTheme.colorScheme.primary 
-                                        else 
-                                            MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
-                                    )
-                                }
-                                Text(
-                                    text = "Skip",
-                                    style = MaterialTheme.typography.labelSmall,
-                                    color = MaterialTheme.colorScheme.onSurfaceVariant
-                                )
-                            }
+                            Icon(
+                                imageVector = if (uiState.isPlaying) Icons.Default.Pause else Icons.Default.PlayArrow,
+                                contentDescription = if (uiState.isPlaying) "Pause" else "Play",
+                                modifier = Modifier.size(32.dp)
+                            )
                         }
-                        
-                        Spacer(modifier = Modifier.height(8.dp))
-                        
-                        // Progress info
-                        Row(
-                            modifier = Modifier.fillMaxWidth(),
-                            horizontalArrangement = Arrangement.SpaceBetween
+                    }
+                    
+                    // Skip forward one word/chunk
+                    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                        IconButton(
+                            onClick = { controls.skipForwardOneWord() },
+                            enabled = !uiState.isPlaying
                         ) {
-                            Text(
-                                text = "Word ${uiState.currentWordIndex}/${uiState.words.size}",
-                                style = MaterialTheme.typography.bodySmall,
-                                color = MaterialTheme.colorScheme.onSurfaceVariant
+                            Icon(
+                                imageVector = Icons.Default.Forward,
+                                contentDescription = "Forward one",
+                                tint = if (!uiState.isPlaying) 
+                                    MaterialTheme.colorScheme.primary 
+                                else 
+                                    MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
                             )
-                            Text(
-                                text = "${(uiState.progress * 100).toInt()}% complete",
-                                style = MaterialTheme.typography.bodySmall,
-                                color = MaterialTheme.colorScheme.onSurfaceVariant
+                        }
+                        Text(
+                            text = "Skip",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = MaterialTheme.colorScheme.onSurfaceVariant
+                        )
+                    }
+                    
+                    // Skip to next paragraph
+                    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+                        IconButton(
+                            onClick = { controls.skipForwardToNextParagraph() },
+                            enabled = !uiState.isPlaying
+                        ) {
+                            Icon(
+                                imageVector = Icons.Default.FastForward,
+                                contentDescription = "Next paragraph",
+                                tint = if (!uiState.isPlaying) 
+                                    MaterialTheme.colorScheme.primary 
+                                else 
+                                    MaterialTheme.colorScheme.onSurface.copy(alpha = 0.3f)
                             )
                         }
+                        Text(
+                            text = "Para",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = MaterialTheme.colorScheme.onSurfaceVariant
+                        )
                     }
                 }
+                
+                Spacer(modifier = Modifier.height(8.dp))
+                
+                // Progress info
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    horizontalArrangement = Arrangement.SpaceBetween
+                ) {
+                    WordCounter(cursor = cursor, wordCount = wordCount)
+                    PlaybackStatsLabel(playbackStats = playbackStats)
+                    ProgressLabel(progressPercent = progressPercent)
+                }
+            }
+        }
+    }
+}
+
+@Composable
+private fun WordDisplay(
+    cursor: State<Int>,
+    uiState: SpeedReadingUiState,
+    backgroundColor: Color,
+    contentColor: Color,
+    modifier: Modifier = Modifier,
+    overlay: @Composable BoxScope.() -> Unit = {}
+) {
+    RecompositionProbe("WordDisplay")
+    val chunks = uiState.chunks
+    val fontSize = uiState.fontSize
+    val layoutCache = remember { ChunkLayoutCache() }
+    val prefetchMeasurer = rememberBackgroundTextMeasurer()
+
+    // Shape upcoming chunks off the main thread so the tick only draws
+    LaunchedEffect(chunks, fontSize, contentColor) {
+        snapshotFlow { cursor.value }.collect { index ->
+            withContext(Dispatchers.Default) {
+                layoutCache.prefetch(
+                    textMeasurer = prefetchMeasurer,
+                    chunks = chunks,
+                    index = index,
+                    lookahead = ChunkLayoutCache.DEFAULT_LOOKAHEAD,
+                    fontSize = fontSize,
+                    color = contentColor,
+                    pivotColor = RsvpPivot
+                )
             }
         }
     }
+
+    Box(
+        modifier = modifier.background(backgroundColor),
+        contentAlignment = Alignment.Center
+    ) {
+        val index = cursor.value
+        RsvpWordCanvas(
+            chunks = chunks,
+            index = index,
+            fontSize = fontSize,
+            color = contentColor,
+            pivotColor = RsvpPivot,
+            layoutCache = layoutCache,
+            modifier = Modifier.fillMaxSize()
+        )
+        overlay()
+    }
 }
 
+@Composable
+private fun WordCounter(cursor: State<Int>, wordCount: Int) {
+    RecompositionProbe("WordCounter")
+    Text(
+        text = "Word ${cursor.value}/$wordCount",
+        style = MaterialTheme.typography.bodySmall,
+        color = MaterialTheme.colorScheme.onSurfaceVariant
+    )
+}
+
+@Composable
+private fun ReadingProgressBar(progressPercent: State<Int>, isPlaying: Boolean, onSeek: (Float) -> Unit) {
+    RecompositionProbe("ReadingProgressBar")
+    // Doubles as a seek bar while paused
+    if (isPlaying) {
+        LinearProgressIndicator(
+            progress = progressPercent.value / 100f,
+            modifier = Modifier.fillMaxWidth()
+        )
+    } else {
+        Slider(
+            value = progressPercent.value / 100f,
+            onValueChange = onSeek,
+            modifier = Modifier
+                .fillMaxWidth()
+                .padding(horizontal = 16.dp)
+        )
+    }
+}
+
+@Composable
+private fun ProgressLabel(progressPercent: State<Int>) {
+    Text(
+        text = "${progressPercent.value}% complete",
+        style = MaterialTheme.typography.bodySmall,
+        color = MaterialTheme.colorScheme.onSurfaceVariant
+    )
+}
+
+@Composable
+private fun PlaybackStatsLabel(playbackStats: StateFlow<PlaybackStats>) {
+    val stats by playbackStats.collectAsState()
+    if (stats.effectiveWpm > 0) {
+        Text(
+            text = "Actual ${stats.effectiveWpm} WPM (±${"%.1f".format(stats.tickJitterMs)} ms)",
+            style = MaterialTheme.typography.bodySmall,
+            color = MaterialTheme.colorScheme.onSurfaceVariant
+        )
+    }
+}
+
+@Composable
+private fun DisplayTimingOverlay(
+    playbackStats: StateFlow<PlaybackStats>,
+    color: Color,
+    modifier: Modifier = Modifier
+) {
+    val stats by playbackStats.collectAsState()
+    val timing = stats.telemetry
+    Text(
+        text = "jitter p50 ${timing.p50JitterMs.toInt()} / p95 ${timing.p95JitterMs.toInt()} / " +
+            "p99 ${timing.p99JitterMs.toInt()} ms\n" +
+            "chunks ${timing.chunksMeasured} • missed frames ${timing.missedFrames}",
+        style = MaterialTheme.typography.labelSmall,
+        color = color.copy(alpha = 0.6f),
+        modifier = modifier
+    )
+}
+
+/** A measurer for background threads; the composition's own one isn't shared across threads. */
+@OptIn(ExperimentalTextApi::class)
+@Composable
+private fun rememberBackgroundTextMeasurer(): TextMeasurer {
+    val fontFamilyResolver = LocalFontFamilyResolver.current
+    val density = LocalDensity.current
+    val layoutDirection = LocalLayoutDirection.current
+    return remember(fontFamilyResolver, density, layoutDirection) {
+        TextMeasurer(fontFamilyResolver, density, layoutDirection, cacheSize = 0)
+    }
+}
@@ -4,16 +4,26 @@ import android.util.Log
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.speedreader.trainer.data.repository.DocumentRepository
+import com.speedreader.trainer.data.repository.ReadingProgressRepository
 import com.speedreader.trainer.data.repository.ReadingSessionRepository
 import com.speedreader.trainer.data.repository.SettingsRepository
 import com.speedreader.trainer.data.repository.UserRepository
+import com.speedreader.trainer.domain.model.DisplayTimingSummary
+import com.speedreader.trainer.domain.reading.BoundaryIndex
+import com.speedreader.trainer.domain.reading.ChunkIndex
+import com.speedreader.trainer.domain.reading.DisplayTimeline
+import com.speedreader.trainer.domain.reading.RsvpScheduler
+import com.speedreader.trainer.domain.text.EncodedDocument
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.NonCancellable
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
@@ -21,8 +31,8 @@ import javax.inject.Inject
 
 data class SpeedReadingUiState(
     val documentTitle: String = "",
-    val words: List<String> = emptyList(),
-    val currentWordIndex: Int = 0,
+    val wordCount: Int = 0,
+    val chunks: ChunkIndex = ChunkIndex.EMPTY,
     val wpm: Int = 250,
     val fontSize: Int = 48,
     val chunkSize: Int = 1,
@@ -36,41 +46,69 @@ data class SpeedReadingUiState(
     val sessionStartIndex: Int = 0,
     val shouldShowQuiz: Boolean = true,
     val showContinueDialog: Boolean = false,
-    val savedProgress: Int = 0
+    val savedProgress: Int = 0,
+    val hasChapters: Boolean = false
 ) {
-    val progress: Float
-        get() = if (words.isNotEmpty()) currentWordIndex.toFloat() / words.size else 0f
-    
-    val currentChunk: String
-        get() {
-            if (words.isEmpty()) return ""
-            val effectiveChunkSize = if (chunkingEnabled) chunkSize else 1
-            val endIndex = minOf(currentWordIndex + effectiveChunkSize, words.size)
-            return words.subList(currentWordIndex, endIndex).joinToString(" ")
-        }
-
-    val wordsReadInSession: Int
-        get() = currentWordIndex - sessionStartIndex
+    val effectiveChunkSize: Int
+        get() = if (chunkingEnabled) chunkSize else 1
 
     companion object {
         const val MIN_WORDS_FOR_QUIZ = 300
     }
 }
 
+data class PlaybackStats(
+    val effectiveWpm: Int = 0,
+    val tickJitterMs: Float = 0f,
+    val telemetry: DisplayTimingSummary = DisplayTimingSummary()
+)
+
+/** What the reading controls can ask of the screen's state holder. */
+interface ReadingControls {
+    fun play()
+    fun pause()
+    fun setWpm(wpm: Int)
+    fun setFontSize(size: Int)
+    fun setChunkSize(size: Int)
+    fun setChunkingEnabled(enabled: Boolean)
+    fun goBackOneWord()
+    fun goBackToSentenceStart()
+    fun goBackToParagraphStart()
+    fun skipForwardToNextParagraph()
+    fun skipForwardOneWord()
+    fun seekToFraction(fraction: Float)
+}
+
 @HiltViewModel
 class SpeedReadingViewModel @Inject constructor(
     private val documentRepository: DocumentRepository,
     private val sessionRepository: ReadingSessionRepository,
     private val userRepository: UserRepository,
-    private val settingsRepository: SettingsRepository
-) : ViewModel() {
+    private val settingsRepository: SettingsRepository,
+    private val progressRepository: ReadingProgressRepository
+) : ViewModel(), ReadingControls {
 
     private val _uiState = MutableStateFlow(SpeedReadingUiState())
     val uiState: StateFlow<SpeedReadingUiState> = _uiState.asStateFlow()
 
+    // The cursor changes on every tick, so it lives apart from the configuration
+    // state; only composables that actually show the current word read it.
+    private val _cursor = MutableStateFlow(0)
+    val cursor: StateFlow<Int> = _cursor.asStateFlow()
+
+    private val _playbackStats = MutableStateFlow(PlaybackStats())
+    val playbackStats: StateFlow<PlaybackStats> = _playbackStats.asStateFlow()
+
     private var readingJob: Job? = null
+    private var checkpointJob: Job? = null
     private var documentId: String = ""
-    private var startTime: Long = 0
+    private val scheduler = RsvpScheduler()
+    private val telemetry = PlaybackTelemetry()
+    private var timeline = DisplayTimeline.EMPTY
+    private var boundaries = BoundaryIndex.EMPTY
+
+    // Word indices whose text has loaded; the rest of the document shows placeholders
+    private val loadedWords = MutableStateFlow(0 until 0)
 
     fun loadDocument(docId: String) {
         documentId = docId
@@ -78,23 +116,79 @@ class SpeedReadingViewModel @Inject constructor(
             loadDefaultSettings()
             
             val document = documentRepository.getDocument(docId)
-            if (document != null) {
-                val words = document.content
-                    .split("\\s+".toRegex())
-                    .filter { it.isNotBlank() }
-                
-                _uiState.value = _uiState.value.copy(
-                    documentTitle = document.title,
-                    words = words,
-                    isLoading = false,
-                    savedProgress = document.lastReadWordIndex,
-                    showContinueDialog = document.hasProgress
-                )
-            } else {
+            if (document == null) {
                 _uiState.value = _uiState.value.copy(
                     isLoading = false,
                     error = "Document not found"
                 )
+                return@launch
+            }
+            val paragraphPause = settingsRepository.paragraphPauseFlow.first()
+
+            // A local checkpoint newer than the last remote write means the app
+            // died (or went offline) before progress was synced
+            val local = progressRepository.getLocalCheckpoint(docId)
+            val remoteSavedAt = document.lastReadAt?.toDate()?.time ?: 0L
+            val savedIndex = if (local != null && local.savedAtMillis > remoteSavedAt) {
+                local.wordIndex
+            } else {
+                document.lastReadWordIndex
+            }
+
+            try {
+                // Text still to be downloaded opens on the saved passage first
+                // and is swapped for the whole document once the rest arrives
+                documentRepository.readableTokens(document, savedIndex).collect { readable ->
+                    val state = _uiState.value
+                    val built = withContext(Dispatchers.Default) {
+                        // Only the encoded form outlives this block; the raw text and
+                        // token offsets become garbage once it is built
+                        val encoded = EncodedDocument.encode(readable.tokens)
+                        Triple(
+                            ChunkIndex.build(encoded, state.effectiveChunkSize),
+                            DisplayTimeline.build(encoded, state.wpm, paragraphPause),
+                            BoundaryIndex.build(encoded, document.chapterStarts)
+                        )
+                    }
+                    // Settings may have changed while it was building
+                    val current = _uiState.value
+                    val chunks = built.first.withChunkSize(current.effectiveChunkSize)
+                    timeline = built.second.also { it.retarget(current.wpm) }
+                    boundaries = built.third
+                    loadedWords.value = readable.loadedFrom until readable.loadedTo
+
+                    if (current.isLoading) {
+                        val savedProgress = savedIndex.coerceIn(0, chunks.wordCount)
+                        _uiState.value = current.copy(
+                            documentTitle = document.title,
+                            wordCount = chunks.wordCount,
+                            chunks = chunks,
+                            hasChapters = boundaries.hasChapters,
+                            isLoading = false,
+                            savedProgress = savedProgress,
+                            showContinueDialog = savedProgress > 0
+                        )
+                    } else {
+                        _uiState.value = current.copy(
+                            wordCount = chunks.wordCount,
+                            chunks = chunks,
+                            hasChapters = boundaries.hasChapters
+                        )
+                    }
+                }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                if (_uiState.value.isLoading) {
+                    // Segments not cached on this device and could not be fetched
+                    _uiState.value = _uiState.value.copy(
+                        isLoading = false,
+                        error = e.message ?: "Failed to load document"
+                    )
+                } else {
+                    // The passage already shown stays readable
+                    Log.w("SpeedReading", "Failed to load the rest of $docId", e)
+                }
             }
         }
     }
@@ -124,8 +218,8 @@ class SpeedReadingViewModel @Inject constructor(
     }
 
     fun continueFromSaved() {
+        _cursor.value = _uiState.value.savedProgress
         _uiState.value = _uiState.value.copy(
-            currentWordIndex = _uiState.value.savedProgress,
             sessionStartIndex = _uiState.value.savedProgress,
             showContinueDialog = false
         )
@@ -133,65 +227,104 @@ class SpeedReadingViewModel @Inject constructor(
 
     fun startFromBeginning() {
         viewModelScope.launch {
-            documentRepository.resetReadingProgress(documentId)
+            progressRepository.reset(documentId)
+            _cursor.value = 0
             _uiState.value = _uiState.value.copy(
-                currentWordIndex = 0,
                 sessionStartIndex = 0,
                 showContinueDialog = false
             )
         }
     }
 
-    fun play() {
-        if (_uiState.value.isFinished) return
-        
-        if (startTime == 0L) {
-            startTime = System.currentTimeMillis()
-        }
+    override fun play() {
+        // A second tap before the first one's jobs end would orphan them
+        if (_uiState.value.isFinished || readingJob?.isActive == true) return
+        checkpointJob?.cancel()
         
         _uiState.value = _uiState.value.copy(isPlaying = true)
+        scheduler.start()
+        telemetry.start()
+        
+        checkpointJob = viewModelScope.launch {
+            while (true) {
+                delay(CHECKPOINT_INTERVAL_MS)
+                progressRepository.checkpoint(documentId, _cursor.value)
+            }
+        }
         
         readingJob = viewModelScope.launch {
-            while (_uiState.value.isPlaying && _uiState.value.currentWordIndex < _uiState.value.words.size) {
-                val delayMs = (60000.0 / _uiState.value.wpm).toLong()
-                delay(delayMs)
+            var ticks = 0
+            while (_uiState.value.isPlaying && _cursor.value < _uiState.value.wordCount) {
+                if (_cursor.value !in loadedWords.value) {
+                    // Caught up with text still downloading; waiting isn't reading time
+                    scheduler.stop()
+                    combine(_cursor, loadedWords) { index, loaded -> index in loaded }.first { it }
+                    scheduler.start()
+                    continue
+                }
+                val state = _uiState.value
+                val currentIndex = _cursor.value
+                val displayed = minOf(state.effectiveChunkSize, state.wordCount - currentIndex)
+                
+                // Dwell comes from the precomputed timeline; setWpm rescales it in place
+                scheduler.awaitTick(timeline.dwellNanos(currentIndex, currentIndex + displayed), displayed)
                 
-                val effectiveChunkSize = if (_uiState.value.chunkingEnabled) _uiState.value.chunkSize else 1
-                val newIndex = _uiState.value.currentWordIndex + effectiveChunkSize
+                val newIndex = currentIndex + state.effectiveChunkSize
                 
-                if (newIndex >= _uiState.value.words.size) {
+                if (newIndex >= state.wordCount) {
+                    _cursor.value = state.wordCount
                     _uiState.value = _uiState.value.copy(
-                        currentWordIndex = _uiState.value.words.size,
                         isPlaying = false,
                         isFinished = true
                     )
+                    stopPlayback()
                 } else {
-                    _uiState.value = _uiState.value.copy(currentWordIndex = newIndex)
+                    _cursor.value = newIndex
+                    telemetry.onChunkScheduled(scheduler.lastDeadlineNanos)
+                    if (++ticks % STATS_REFRESH_TICKS == 0) publishPlaybackStats()
                 }
             }
         }
     }
 
-    fun pause() {
+    override fun pause() {
         _uiState.value = _uiState.value.copy(isPlaying = false)
         readingJob?.cancel()
-        
-        // Save progress
-        viewModelScope.launch {
-            documentRepository.updateReadingProgress(documentId, _uiState.value.currentWordIndex)
-        }
+        stopPlayback()
     }
 
-    fun setWpm(wpm: Int) {
+    /** Playback doesn't continue while the screen isn't visible. */
+    fun onBackgrounded() {
+        if (_uiState.value.isPlaying) pause()
+    }
+
+    private fun stopPlayback() {
+        checkpointJob?.cancel()
+        scheduler.stop()
+        telemetry.stop()
+        publishPlaybackStats()
+        progressRepository.flush(documentId, _cursor.value)
+    }
+
+    private fun publishPlaybackStats() {
+        _playbackStats.value = PlaybackStats(
+            effectiveWpm = scheduler.effectiveWpm,
+            tickJitterMs = scheduler.meanJitterMs,
+            telemetry = telemetry.summary()
+        )
+    }
+
+    override fun setWpm(wpm: Int) {
         val newWpm = wpm.coerceIn(100, 1000)
         _uiState.value = _uiState.value.copy(wpm = newWpm)
+        timeline.retarget(newWpm)
         // Save to settings
         viewModelScope.launch {
             settingsRepository.setDefaultWpm(newWpm)
         }
     }
 
-    fun setFontSize(size: Int) {
+    override fun setFontSize(size: Int) {
         val newSize = size.coerceIn(24, 72)
         _uiState.value = _uiState.value.copy(fontSize = newSize)
         // Save to settings
@@ -200,90 +333,101 @@ class SpeedReadingViewModel @Inject constructor(
         }
     }
 
-    fun setChunkSize(size: Int) {
+    override fun setChunkSize(size: Int) {
         val newSize = size.coerceIn(1, 5)
-        _uiState.value = _uiState.value.copy(chunkSize = newSize)
+        val state = _uiState.value
+        _uiState.value = state.copy(
+            chunkSize = newSize,
+            chunks = state.chunks.withChunkSize(if (state.chunkingEnabled) newSize else 1)
+        )
         // Save to settings
         viewModelScope.launch {
             settingsRepository.setDefaultChunkSize(newSize)
         }
     }
 
-    fun setChunkingEnabled(enabled: Boolean) {
-        _uiState.value = _uiState.value.copy(chunkingEnabled = enabled)
+    override fun setChunkingEnabled(enabled: Boolean) {
+        val state = _uiState.value
+        _uiState.value = state.copy(
+            chunkingEnabled = enabled,
+            chunks = state.chunks.withChunkSize(if (enabled) state.chunkSize else 1)
+        )
         // Save to settings
         viewModelScope.launch {
             settingsRepository.setChunkingEnabled(enabled)
         }
     }
 
-    fun goBackOneWord() {
-        val effectiveChunkSize = if (_uiState.value.chunkingEnabled) _uiState.value.chunkSize else 1
-        val newIndex = (_uiState.value.currentWordIndex - effectiveChunkSize).coerceAtLeast(_uiState.value.sessionStartIndex)
-        _uiState.value = _uiState.value.copy(currentWordIndex = newIndex)
+    override fun goBackOneWord() {
+        val effectiveChunkSize = _uiState.value.effectiveChunkSize
+        val newIndex = (_cursor.value - effectiveChunkSize).coerceAtLeast(_uiState.value.sessionStartIndex)
+        _cursor.value = newIndex
     }
 
-    fun goBackToSentenceStart() {
-        val words = _uiState.value.words
-        val currentIndex = _uiState.value.currentWordIndex
-        val sessionStart = _uiState.value.sessionStartIndex
-        
-        if (currentIndex <= sessionStart || words.isEmpty()) return
-        
-        // Look backwards from current position to find sentence start
-        // A sentence typically ends with . ! or ? followed by a word starting with uppercase
-        var sentenceStart = currentIndex
-        
-        for (i in (currentIndex - 1) downTo sessionStart) {
-            val word = words.getOrNull(i) ?: continue
-            // Check if this word ends a sentence (ends with . ! or ?)
-            if (word.endsWith(".") || word.endsWith("!") || word.endsWith("?")) {
-                // The next word (i + 1) is the start of the current sentence
-                sentenceStart = i + 1
-                break
-            }
-            sentenceStart = i
-        }
-        
-        // If we're already at sentence start, go to previous sentence
-        if (sentenceStart == currentIndex && currentIndex > sessionStart) {
-            for (i in (currentIndex - 2) downTo sessionStart) {
-                val word = words.getOrNull(i) ?: continue
-                if (word.endsWith(".") || word.endsWith("!") || word.endsWith("?")) {
-                    sentenceStart = i + 1
-                    break
-                }
-                sentenceStart = i
-            }
-        }
-        
-        _uiState.value = _uiState.value.copy(currentWordIndex = sentenceStart.coerceAtLeast(sessionStart))
+    override fun goBackToSentenceStart() {
+        moveBackTo(boundaries.previousSentence(_cursor.value))
     }
 
-    fun skipForwardOneWord() {
-        val effectiveChunkSize = if (_uiState.value.chunkingEnabled) _uiState.value.chunkSize else 1
-        val newIndex = (_uiState.value.currentWordIndex + effectiveChunkSize).coerceAtMost(_uiState.value.words.size - 1)
-        _uiState.value = _uiState.value.copy(currentWordIndex = newIndex)
+    override fun goBackToParagraphStart() {
+        moveBackTo(boundaries.previousParagraph(_cursor.value))
+    }
+
+    override fun skipForwardToNextParagraph() {
+        moveForwardTo(boundaries.nextParagraph(_cursor.value))
+    }
+
+    fun goBackToChapterStart() {
+        moveBackTo(boundaries.previousChapter(_cursor.value))
+    }
+
+    fun skipForwardToNextChapter() {
+        moveForwardTo(boundaries.nextChapter(_cursor.value))
+    }
+
+    override fun seekToFraction(fraction: Float) {
+        val target = boundaries.indexAtFraction(fraction)
+        if (target < _cursor.value) moveBackTo(target) else moveForwardTo(target)
+    }
+
+    private fun moveBackTo(index: Int) {
+        _cursor.value = index.coerceAtLeast(_uiState.value.sessionStartIndex)
+    }
+
+    private fun moveForwardTo(index: Int) {
+        _cursor.value = index.coerceAtMost(_uiState.value.wordCount - 1).coerceAtLeast(0)
+    }
+
+    override fun skipForwardOneWord() {
+        val effectiveChunkSize = _uiState.value.effectiveChunkSize
+        val newIndex = (_cursor.value + effectiveChunkSize).coerceAtMost(_uiState.value.wordCount - 1)
+        _cursor.value = newIndex
     }
 
     fun finishReading(): Pair<String, Boolean> {
         pause()
         
-        val endTime = System.currentTimeMillis()
-        // If never played (startTime is 0), duration is 0
-        val durationSeconds = if (startTime == 0L) 0 else ((endTime - startTime) / 1000).toInt().coerceAtLeast(0)
-        val wordsRead = _uiState.value.wordsReadInSession
+        // Only time spent actually playing counts; pauses, dialogs and
+        // backgrounding are recorded separately
+        val activeTime = scheduler.activeTime
+        val durationSeconds = activeTime.activeSeconds
+        val wordsRead = _cursor.value - _uiState.value.sessionStartIndex
         
         val shouldShowQuiz = wordsRead >= SpeedReadingUiState.MIN_WORDS_FOR_QUIZ
         
         _uiState.value = _uiState.value.copy(shouldShowQuiz = shouldShowQuiz)
         
+        val displayTiming = telemetry.summary()
         val sessionId = sessionRepository.createPendingSession(
             documentId = documentId,
             documentTitle = _uiState.value.documentTitle,
             wpmUsed = _uiState.value.wpm,
             wordsRead = wordsRead,
-            durationSeconds = durationSeconds
+            durationSeconds = durationSeconds,
+            pausedSeconds = activeTime.pausedSeconds,
+            wordsDisplayed = activeTime.wordsDisplayed.toInt(),
+            effectiveWpm = scheduler.effectiveWpm,
+            meanJitterMs = scheduler.meanJitterMs,
+            displayTiming = displayTiming
         )
         
         _uiState.value = _uiState.value.copy(sessionId = sessionId)
@@ -293,8 +437,8 @@ class SpeedReadingViewModel @Inject constructor(
             viewModelScope.launch {
                 try {
                     val startIdx = _uiState.value.sessionStartIndex
-                    val endIdx = _uiState.value.currentWordIndex
-                    val textForQuiz = _uiState.value.words.subList(startIdx, endIdx).joinToString(" ")
+                    val endIdx = _cursor.value
+                    val textForQuiz = _uiState.value.chunks.text(startIdx, endIdx)
                     // Use NonCancellable to ensure question generation completes even if ViewModel is cleared
                     withContext(NonCancellable) {
                         sessionRepository.generateComprehensionQuestions(textForQuiz)
@@ -326,6 +470,18 @@ class SpeedReadingViewModel @Inject constructor(
     override fun onCleared() {
         super.onCleared()
         readingJob?.cancel()
+        checkpointJob?.cancel()
+        telemetry.stop()
+        // Don't overwrite saved progress if the user left before choosing where to resume
+        val state = _uiState.value
+        if (!state.isLoading && !state.showContinueDialog) {
+            progressRepository.flush(documentId, _cursor.value)
+        }
+    }
+
+    companion object {
+        private const val STATS_REFRESH_TICKS = 16
+        private const val CHECKPOINT_INTERVAL_MS = 2_000L
     }
 }
 
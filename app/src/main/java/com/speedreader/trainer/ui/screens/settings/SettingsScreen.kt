@@ -162,6 +162,17 @@ fun SettingsScreen(
                         onValueChange = { viewModel.setDefaultFontSize(it.toInt()) }
                     )
                     
+                    Spacer(modifier = Modifier.height(16.dp))
+                    
+                    // Paragraph Pause Slider
+                    SettingsSliderItem(
+                        title = "Paragraph Pause",
+                        value = uiState.paragraphPause,
+                        valueLabel = if (uiState.paragraphPause == 0) "Off" else "${uiState.paragraphPause} words",
+                        range = 0f..5f,
+                        onValueChange = { viewModel.setParagraphPause(it.toInt()) }
+                    )
+                    
                     Spacer(modifier = Modifier.height(16.dp))
                     Divider()
                     Spacer(modifier = Modifier.height(16.dp))
@@ -201,6 +212,19 @@ fun SettingsScreen(
                             onOptionSelected = { viewModel.setDefaultChunkSize(it) }
                         )
                     }
+
+                    Spacer(modifier = Modifier.height(16.dp))
+                    Divider()
+                    Spacer(modifier = Modifier.height(16.dp))
+
+                    // Concurrent Imports Slider
+                    SettingsSliderItem(
+                        title = "Concurrent Imports",
+                        value = uiState.maxConcurrentImports,
+                        valueLabel = "${uiState.maxConcurrentImports} at a time",
+                        range = 1f..4f,
+                        onValueChange = { viewModel.setMaxConcurrentImports(it.toInt()) }
+                    )
                 }
             }
 
@@ -22,6 +22,8 @@ data class SettingsUiState(
     val defaultFontSize: Int = 48,
     val chunkingEnabled: Boolean = false,
     val defaultChunkSize: Int = 2,
+    val paragraphPause: Int = 2,
+    val maxConcurrentImports: Int = 2,
     val isSignedOut: Boolean = false,
     val isSavingName: Boolean = false,
     val nameSaved: Boolean = false
@@ -84,6 +86,16 @@ class SettingsViewModel @Inject constructor(
                 _uiState.value = _uiState.value.copy(defaultChunkSize = chunkSize)
             }
         }
+        viewModelScope.launch {
+            settingsRepository.paragraphPauseFlow.collect { pause ->
+                _uiState.value = _uiState.value.copy(paragraphPause = pause)
+            }
+        }
+        viewModelScope.launch {
+            settingsRepository.maxConcurrentImportsFlow.collect { max ->
+                _uiState.value = _uiState.value.copy(maxConcurrentImports = max)
+            }
+        }
     }
 
     fun setDarkMode(enabled: Boolean) {
@@ -122,6 +134,18 @@ class SettingsViewModel @Inject constructor(
         }
     }
 
+    fun setParagraphPause(words: Int) {
+        viewModelScope.launch {
+            settingsRepository.setParagraphPause(words)
+        }
+    }
+
+    fun setMaxConcurrentImports(max: Int) {
+        viewModelScope.launch {
+            settingsRepository.setMaxConcurrentImports(max)
+        }
+    }
+
     fun updateDisplayName(name: String) {
         viewModelScope.launch {
             _uiState.value = _uiState.value.copy(isSavingName = true, nameSaved = false)
@@ -41,4 +41,5 @@ val WordHighlight = Color(0xFFE3F2FD)
 
 // RSVP Word style
 val RsvpWordStyle = Color(0xFF1A1A1A)
+val RsvpPivot = Color(0xFFE53935)
 
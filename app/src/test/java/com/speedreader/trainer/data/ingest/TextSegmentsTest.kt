@@ -0,0 +1,65 @@
+package com.speedreader.trainer.data.ingest
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.Reader
+import java.io.StringReader
+import kotlin.random.Random
+
+class TextSegmentsTest {
+
+    private val text = buildString {
+        var i = 0
+        while (length < 5 * SEGMENT) {
+            append("Line $i with a surrogate pair 📚 and **markup**.\n")
+            if (++i % 7 == 0) append("\n## Heading $i\n\n")
+        }
+    }
+
+    @Test
+    fun cutsDependOnlyOnTheText() {
+        for (markdown in listOf(false, true)) {
+            val expected = segments(StringReader(text), markdown)
+            for (seed in 1..5) {
+                assertEquals(expected, segments(IrregularReader(text, Random(seed)), markdown))
+            }
+            assertTrue(expected.dropLast(1).all { it.length in SEGMENT - 1..SEGMENT })
+            assertTrue(expected.none { Character.isHighSurrogate(it.last()) })
+        }
+    }
+
+    @Test
+    fun resumeSkipsExactlyTheSegmentsAlreadyTaken() {
+        val firstRun = segments(IrregularReader(text, Random(7)), markdown = false)
+        for (done in 0..firstRun.size) {
+            val resumed = segments(IrregularReader(text, Random(done)), markdown = false).drop(done)
+            assertEquals(text, (firstRun.take(done) + resumed).joinToString(""))
+        }
+    }
+
+    private fun segments(reader: Reader, markdown: Boolean): List<String> {
+        val segments = TextSegments(reader, markdown, SEGMENT)
+        return generateSequence { segments.next() }.toList()
+    }
+
+    /** Returns between one and a few hundred chars per read, like a pipe or provider stream. */
+    private class IrregularReader(private val text: String, private val random: Random) : Reader() {
+        private var position = 0
+
+        override fun read(buffer: CharArray, offset: Int, length: Int): Int {
+            if (position == text.length) return -1
+            val count = minOf(length, text.length - position, random.nextInt(1, 300))
+            text.toCharArray(buffer, offset, position, position + count)
+            position += count
+            return count
+        }
+
+        override fun close() = Unit
+    }
+
+    companion object {
+        // Small segments so the test crosses many cuts, some inside surrogate pairs
+        private const val SEGMENT = 1001
+    }
+}
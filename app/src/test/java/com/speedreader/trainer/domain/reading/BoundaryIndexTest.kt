@@ -0,0 +1,60 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.EncodedDocument
+import com.speedreader.trainer.domain.text.Tokenizer
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class BoundaryIndexTest {
+
+    // Words 0-9; sentences start at 0, 2, 5, 6 and 8, paragraphs at 0 and 6
+    private val document = EncodedDocument.encode(
+        Tokenizer.tokenize("One two. Three four five. Six.\n\nSeven eight. Nine ten.")
+    )
+
+    @Test
+    fun sentenceNavigation() {
+        val index = BoundaryIndex.build(document)
+
+        assertEquals(2, index.previousSentence(3))
+        assertEquals(0, index.previousSentence(2))
+        assertEquals(0, index.previousSentence(0))
+        assertEquals(5, index.nextSentence(3))
+        assertEquals(8, index.nextSentence(8))
+    }
+
+    @Test
+    fun paragraphNavigation() {
+        val index = BoundaryIndex.build(document)
+
+        assertEquals(6, index.previousParagraph(7))
+        assertEquals(0, index.previousParagraph(6))
+        assertEquals(6, index.nextParagraph(2))
+        assertEquals(6, index.nextParagraph(6))
+    }
+
+    @Test
+    fun chaptersStartAtZeroAndIgnoreOutOfRangeAnchors() {
+        assertFalse(BoundaryIndex.build(document).hasChapters)
+
+        val index = BoundaryIndex.build(document, chapterStarts = listOf(6, 40))
+        assertTrue(index.hasChapters)
+        assertEquals(6, index.nextChapter(1))
+        assertEquals(6, index.previousChapter(9))
+        assertEquals(0, index.previousChapter(6))
+        assertEquals(7, index.nextChapter(7))
+    }
+
+    @Test
+    fun fractionSeeksToSentenceStart() {
+        val index = BoundaryIndex.build(document)
+
+        assertEquals(0, index.indexAtFraction(0f))
+        assertEquals(2, index.indexAtFraction(0.5f))
+        assertEquals(8, index.indexAtFraction(1f))
+        assertEquals(8, index.indexAtFraction(2f))
+        assertEquals(0, BoundaryIndex.EMPTY.indexAtFraction(0.5f))
+    }
+}
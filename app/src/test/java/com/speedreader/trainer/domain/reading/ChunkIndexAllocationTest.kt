@@ -0,0 +1,78 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.EncodedDocument
+import com.speedreader.trainer.domain.text.Tokenizer
+import com.sun.management.ThreadMXBean
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+
+/**
+ * Allocation benchmark for the reading tick: once the chunks around the
+ * cursor are cached, looking up the current one and its pivot must not
+ * allocate, at any chunk width. 1000 WPM is one tick per 60 ms, so the loop
+ * below stands for well over an hour of reading.
+ */
+class ChunkIndexAllocationTest {
+
+    private val chunks = ChunkIndex.build(EncodedDocument.encode(Tokenizer.tokenize(sampleText(200_000))), 1)
+
+    @Test
+    fun cachedTicksDoNotAllocate() {
+        for (chunkSize in 1..5) {
+            val index = chunks.withChunkSize(chunkSize)
+            val slots = ChunkSlots<Any>(WINDOW_CHUNKS * 2)
+            slots.reset(chunkSize)
+            for (chunk in 0 until WINDOW_CHUNKS) slots[chunk * chunkSize] = Any()
+
+            // Warm up so class loading and compilation don't count
+            tick(index, slots, chunkSize)
+            val threads = ManagementFactory.getThreadMXBean() as ThreadMXBean
+            val thread = Thread.currentThread().id
+            val before = threads.getThreadAllocatedBytes(thread)
+            val hits = tick(index, slots, chunkSize)
+            val allocated = threads.getThreadAllocatedBytes(thread) - before
+
+            assertEquals(TICKS, hits)
+            // Headroom for the counter's own bookkeeping, far below one object per tick
+            assertTrue("chunk size $chunkSize allocated $allocated bytes", allocated < TICKS / 10)
+        }
+    }
+
+    @Test
+    fun chunkTextMatchesJoinedWords() {
+        val index = chunks.withChunkSize(3)
+        for (start in listOf(0, 1, 17, index.wordCount - 2)) {
+            assertEquals(index.text(start, start + 3), index.chunkAt(start).toString())
+        }
+        assertEquals("", index.chunkAt(index.wordCount).toString())
+    }
+
+    private fun tick(index: ChunkIndex, slots: ChunkSlots<Any>, chunkSize: Int): Int {
+        var hits = 0
+        var pivots = 0
+        for (tick in 0 until TICKS) {
+            val start = (tick % WINDOW_CHUNKS) * chunkSize
+            if (slots[start] != null) hits++
+            pivots += index.pivotAt(start)
+        }
+        assertTrue(pivots >= 0)
+        return hits
+    }
+
+    private fun sampleText(words: Int): String {
+        val vocabulary = listOf("the", "reader", "moves", "quickly", "through", "long", "paragraphs,", "then", "stops.")
+        val builder = StringBuilder()
+        for (i in 0 until words) {
+            if (i > 0) builder.append(if (i % 120 == 0) "\n\n" else " ")
+            builder.append(vocabulary[(i * 7 + i / 3) % vocabulary.size])
+        }
+        return builder.toString()
+    }
+
+    companion object {
+        private const val TICKS = 100_000
+        private const val WINDOW_CHUNKS = 32
+    }
+}
@@ -0,0 +1,73 @@
+package com.speedreader.trainer.domain.reading
+
+import com.speedreader.trainer.domain.text.EncodedDocument
+import com.speedreader.trainer.domain.text.Tokenizer
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Heap held by the reader for a million-word document: the encoded form
+ * against the List<String> it replaced, and the layout table staying the
+ * same size however far the reader gets.
+ */
+class ReadingMemoryTest {
+
+    @Test
+    fun encodedDocumentIsFarSmallerThanWordList() {
+        val tokens = Tokenizer.tokenize(sampleText(WORDS))
+
+        val beforeList = usedHeap()
+        val words = List(tokens.size) { tokens.wordAt(it) }
+        val listBytes = usedHeap() - beforeList
+
+        val beforeEncoded = usedHeap()
+        val encoded = EncodedDocument.encode(tokens)
+        val encodedBytes = usedHeap() - beforeEncoded
+
+        assertEquals(words.size, encoded.size)
+        // About 4 bytes a word against a String object per word
+        assertTrue(
+            "EncodedDocument ${encodedBytes / 1024} KiB, List<String> ${listBytes / 1024} KiB",
+            encodedBytes * 5 < listBytes
+        )
+    }
+
+    @Test
+    fun layoutTableDoesNotGrowWithProgress() {
+        val chunks = ChunkIndex.build(EncodedDocument.encode(Tokenizer.tokenize(sampleText(WORDS))), 2)
+        val slots = ChunkSlots<Any>(CAPACITY)
+        slots.reset(chunks.chunkSize)
+        for (start in 0 until chunks.wordCount step chunks.chunkSize) slots[start] = Any()
+
+        var held = 0
+        for (start in 0 until chunks.wordCount step chunks.chunkSize) {
+            if (slots[start] != null) held++
+        }
+        assertEquals(CAPACITY, held)
+    }
+
+    private fun usedHeap(): Long {
+        val runtime = Runtime.getRuntime()
+        repeat(4) {
+            System.gc()
+            Thread.sleep(50)
+        }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    private fun sampleText(words: Int): String {
+        val vocabulary = listOf("a", "quick", "reader", "skims", "every", "chapter", "of", "the", "book.")
+        val builder = StringBuilder()
+        for (i in 0 until words) {
+            if (i > 0) builder.append(if (i % 150 == 0) "\n\n" else " ")
+            builder.append(vocabulary[(i * 5 + i / 7) % vocabulary.size])
+        }
+        return builder.toString()
+    }
+
+    companion object {
+        private const val WORDS = 1_000_000
+        private const val CAPACITY = 64
+    }
+}
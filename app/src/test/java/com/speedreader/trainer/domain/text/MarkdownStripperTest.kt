@@ -0,0 +1,71 @@
+package com.speedreader.trainer.domain.text
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MarkdownStripperTest {
+
+    @Test
+    fun headingsBecomeMarkerLines() {
+        assertEquals("$MARKER Title\n", strip("## Title ##"))
+        assertEquals("$MARKER Chapter\n", strip("Chapter\n======="))
+        assertEquals("$MARKER Intro\n", strip("Intro\n---"))
+        assertEquals("#hashtag\n", strip("#hashtag"))
+    }
+
+    @Test
+    fun escapedHashStaysAWord() {
+        val tokens = Tokenizer.tokenize(strip("\\# of items\n\n$MARKER not a heading"), markdown = true)
+
+        assertEquals(listOf("#", "of", "items", "not", "a", "heading"), List(tokens.size) { tokens.wordAt(it) })
+        assertFalse((0 until tokens.size).any { tokens.isHeading(it) })
+    }
+
+    @Test
+    fun inlineMarkupKeepsVisibleText() {
+        assertEquals(
+            "Some bold and a link and img code snake_case.\n",
+            strip("Some **bold** and [a link](http://x.y) and ![img](p.png) `code` snake_case.")
+        )
+        assertEquals("bold https://a.b\n", strip("<b>bold</b> <https://a.b>"))
+        assertEquals("*not emphasis*\n", strip("\\*not emphasis\\*"))
+    }
+
+    @Test
+    fun blockPrefixesAreDropped() {
+        assertEquals("done item\nfirst\nquoted\n", strip("> - [x] done item\n1. first\n> quoted"))
+    }
+
+    @Test
+    fun fencedCodeIsKeptVerbatim() {
+        assertEquals("\nval x = *y*\n\n", strip("```kotlin\nval x = *y*\n```"))
+    }
+
+    @Test
+    fun referencesAndRulesLeaveNoWords() {
+        assertEquals("Text\n\n", strip("Text\n***\n[1]: http://example.com"))
+    }
+
+    @Test
+    fun strippedHeadingsTokenizeAsHeadings() {
+        val tokens = Tokenizer.tokenize(strip("Setext Title\n===\n\nBody text."), markdown = true)
+
+        assertEquals(listOf("Setext", "Title", "Body", "text."), List(tokens.size) { tokens.wordAt(it) })
+        assertTrue(tokens.isHeading(0) && tokens.isHeading(1))
+        assertFalse(tokens.isHeading(2))
+    }
+
+    private fun strip(markdown: String): String {
+        val stripper = MarkdownStripper()
+        val out = StringBuilder()
+        markdown.split('\n').forEach { stripper.line(it, out) }
+        stripper.finish(out)
+        return out.toString()
+    }
+
+    companion object {
+        private const val MARKER = Tokenizer.HEADING_MARKER
+    }
+}
@@ -0,0 +1,55 @@
+package com.speedreader.trainer.domain.text
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class StorageSegmentsTest {
+
+    @Test
+    fun segmentsCoverTheTextWithinBounds() {
+        val tokens = Tokenizer.tokenize(paragraphs(5_000))
+        val segments = StorageSegments.split(tokens)
+
+        assertTrue(segments.size > 10)
+        assertEquals(0, segments.first().start)
+        assertEquals(tokens.text.length, segments.last().end)
+        for ((previous, next) in segments.zipWithNext()) assertEquals(previous.end, next.start)
+        for (segment in segments) {
+            assertTrue(segment.end - segment.start <= StorageSegments.MAX_CHARS)
+            assertEquals(Tokenizer.countWords(tokens.text.substring(segment.start, segment.end)), segment.wordCount)
+        }
+        assertEquals(tokens.size, segments.sumOf { it.wordCount })
+    }
+
+    @Test
+    fun localEditKeepsOtherSegmentHashes() {
+        val text = paragraphs(5_000)
+        val edited = text.replace("Paragraph 2500 ", "Paragraph 2500, now revised, ")
+        val before = StorageSegments.split(Tokenizer.tokenize(text)).map { it.hash }
+        val after = StorageSegments.split(Tokenizer.tokenize(edited)).map { it.hash }
+
+        // The edited slice, and at most its neighbour if the edit moved a cut
+        assertTrue("${(before - after.toSet()).size} of ${before.size} changed", (before - after.toSet()).size <= 2)
+        assertTrue((after - before.toSet()).size <= 2)
+    }
+
+    @Test
+    fun hugeParagraphIsCutAtSpaces() {
+        val text = "word ".repeat(StorageSegments.MAX_CHARS)
+        val tokens = Tokenizer.tokenize(text)
+        val segments = StorageSegments.split(tokens)
+
+        assertTrue(segments.size >= 5)
+        for (segment in segments) {
+            assertTrue(segment.end - segment.start <= StorageSegments.MAX_CHARS)
+            assertTrue(text[segment.end - 1].isWhitespace())
+        }
+        assertEquals(tokens.size, segments.sumOf { it.wordCount })
+    }
+
+    private fun paragraphs(count: Int): String =
+        (0 until count).joinToString("\n\n") {
+            "Paragraph $it covers topic ${it * 7 % 13} in some detail, with enough words to fill a line."
+        }
+}
@@ -0,0 +1,77 @@
+package com.speedreader.trainer.domain.text
+
+import com.speedreader.trainer.domain.text.TokenStreamBuilderTest.Companion.assertSameTokens
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class TextRevisionTest {
+
+    private val oldText = "First paragraph here.\n\nSecond one, unchanged.\n\nThird will change.\n\nLast words."
+    private val newText = "Added at the top.\n\nFirst paragraph here.\n\nSecond one, unchanged.\n\n" +
+        "Third has changed.\n\nLast words."
+
+    @Test
+    fun unchangedParagraphsMapToTheirNewOffsets() {
+        val revision = TextRevision.between(oldText, newText)
+
+        assertEquals(3, revision.matchedParagraphs)
+        for (word in listOf("paragraph", "unchanged", "Last")) {
+            assertEquals(newText.indexOf(word), revision.mapOffset(oldText.indexOf(word)))
+        }
+        assertEquals(-1, revision.mapOffset(oldText.indexOf("will")))
+    }
+
+    @Test
+    fun changedParagraphEstimatesPastThePreviousMatch() {
+        val revision = TextRevision.between(oldText, newText)
+        val secondEnd = newText.indexOf("unchanged.") + "unchanged.".length
+
+        assertEquals(secondEnd, revision.estimateOffset(oldText.indexOf("will")))
+        assertEquals(0, TextRevision.between("Only old.", "Only new.").estimateOffset(3))
+    }
+
+    @Test
+    fun oldStartOfFindsOnlyMatchedParagraphs() {
+        val revision = TextRevision.between(oldText, newText)
+
+        assertEquals(oldText.indexOf("Second"), revision.oldStartOf(newText.indexOf("Second")))
+        assertEquals(-1, revision.oldStartOf(newText.indexOf("Third")))
+        assertEquals(-1, revision.oldStartOf(0))
+    }
+
+    @Test
+    fun movedParagraphsKeepTheLongestInOrderRun() {
+        val old = "A one.\n\nB two.\n\nC three.\n\nD four."
+        val new = "C three.\n\nA one.\n\nB two.\n\nD four."
+        val revision = TextRevision.between(old, new)
+
+        assertEquals(3, revision.matchedParagraphs)
+        assertEquals(-1, revision.mapOffset(old.indexOf("C")))
+        assertEquals(new.indexOf("B"), revision.mapOffset(old.indexOf("B")))
+    }
+
+    @Test
+    fun paragraphSpansSplitOnBlankLinesOnly() {
+        val spans = TextRevision.paragraphSpans("  one\ntwo  \n \n three\n\n\n")
+        assertEquals(listOf(2, 9, 15, 20), spans.toList())
+    }
+
+    @Test
+    fun retokenizeMatchesTokenize() {
+        for (markdown in listOf(false, true)) {
+            val old = "${Tokenizer.HEADING_MARKER} Title\n\n" + oldText
+            val new = "${Tokenizer.HEADING_MARKER} Title\n\n" + newText
+            val previous = Tokenizer.tokenize(old, markdown)
+            val revision = TextRevision.between(old, new)
+            assertSameTokens(Tokenizer.tokenize(new, markdown), Tokenizer.retokenize(previous, new, revision, markdown))
+        }
+    }
+
+    @Test
+    fun retokenizeFallsBackWhenTheScriptChanges() {
+        val old = "Plain English text.\n\nMore of it."
+        val new = "Plain English text.\n\n" + "我们今天去图书馆看书。".repeat(30)
+        val revision = TextRevision.between(old, new)
+        assertSameTokens(Tokenizer.tokenize(new), Tokenizer.retokenize(Tokenizer.tokenize(old), new, revision))
+    }
+}
@@ -0,0 +1,58 @@
+package com.speedreader.trainer.domain.text
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class TokenStreamBuilderTest {
+
+    @Test
+    fun blankFirstPieceDoesNotPickSegmenter() {
+        val pieces = listOf("\n\n", CJK_PARAGRAPH, "\n\n", CJK_PARAGRAPH)
+        val text = pieces.joinToString("")
+        val built = build(pieces)
+
+        assertSameTokens(Tokenizer.tokenize(text, segmenter = WordSegmenter.Dictionary()), built)
+        // Whitespace leaves each paragraph one token; Dictionary at least splits
+        // at the comma and full stops, with or without a word dictionary
+        assertTrue(built.size > Tokenizer.tokenize(text, segmenter = WordSegmenter.Whitespace).size)
+    }
+
+    @Test
+    fun shortLatinCoverIsOverruledByTheBody() {
+        val pieces = listOf("Cover\n\n", CJK_PARAGRAPH.repeat(20), "\n\n", CJK_PARAGRAPH.repeat(20))
+        assertSameTokens(Tokenizer.tokenize(pieces.joinToString("")), build(pieces))
+    }
+
+    @Test
+    fun matchesTokenizeForAnySplit() {
+        val text = "${Tokenizer.HEADING_MARKER} Chapter One\n\nIt was late. The reader kept going,\npage after page.\n\n" +
+            "${Tokenizer.HEADING_MARKER} Part two\nShort line.\n\n\n  Indented text... and more!\n" + "word ".repeat(500)
+        for (markdown in listOf(false, true)) {
+            val expected = Tokenizer.tokenize(text, markdown)
+            for (pieceLength in listOf(1, 2, 3, 7, 64, 1000, text.length)) {
+                assertSameTokens(expected, build(text.chunked(pieceLength), markdown))
+            }
+        }
+    }
+
+    private fun build(pieces: List<String>, markdown: Boolean = false): TokenStream {
+        val builder = TokenStreamBuilder(markdown)
+        pieces.forEach(builder::append)
+        return builder.build()
+    }
+
+    companion object {
+        private const val CJK_PARAGRAPH = "我们今天去图书馆看书。她喜欢读历史小说，也喜欢写日记。"
+
+        internal fun assertSameTokens(expected: TokenStream, actual: TokenStream) {
+            assertEquals(expected.text, actual.text)
+            assertEquals(expected.size, actual.size)
+            for (i in 0 until expected.size) {
+                assertEquals("start of $i", expected.start(i), actual.start(i))
+                assertEquals("end of $i", expected.end(i), actual.end(i))
+                assertEquals("flags of $i", expected.flagsAt(i), actual.flagsAt(i))
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.speedreader.trainer.domain.text
+
+import com.sun.management.ThreadMXBean
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.management.ManagementFactory
+
+/**
+ * Tokenizer against the regex split it replaced, on 10 MB of text. Time is
+ * reported in the failure message; the assertion is on allocation, which unlike
+ * wall-clock time doesn't depend on the machine running the test.
+ */
+class TokenizerBenchmarkTest {
+
+    private val text = sampleText(10 * 1024 * 1024)
+
+    @Test
+    fun tokenizerAllocatesFarLessThanRegexSplit() {
+        // Warm up both paths so compilation doesn't count
+        repeat(2) {
+            regexSplit(text)
+            Tokenizer.tokenize(text)
+        }
+
+        var words = emptyList<String>()
+        val regex = measure { words = regexSplit(text) }
+        var tokens = TokenStream.EMPTY
+        val tokenizer = measure { tokens = Tokenizer.tokenize(text) }
+
+        assertEquals(words.size, tokens.size)
+        assertTrue(
+            "10 MB, ${tokens.size} words: tokenizer ${tokenizer.millis} ms / ${tokenizer.bytes / MIB} MiB, " +
+                "regex ${regex.millis} ms / ${regex.bytes / MIB} MiB",
+            tokenizer.bytes * 2 < regex.bytes
+        )
+    }
+
+    private class Measurement(val millis: Long, val bytes: Long)
+
+    private inline fun measure(block: () -> Unit): Measurement {
+        val threads = ManagementFactory.getThreadMXBean() as ThreadMXBean
+        val thread = Thread.currentThread().id
+        val bytesBefore = threads.getThreadAllocatedBytes(thread)
+        val start = System.nanoTime()
+        block()
+        val millis = (System.nanoTime() - start) / 1_000_000
+        return Measurement(millis, threads.getThreadAllocatedBytes(thread) - bytesBefore)
+    }
+
+    // The split every call site used before the tokenizer
+    private fun regexSplit(text: String): List<String> =
+        text.split("\\s+".toRegex()).filter { it.isNotBlank() }
+
+    private fun sampleText(chars: Int): String {
+        val vocabulary = listOf(
+            "The", "reader", "follows", "each", "word", "as", "it", "flashes", "past,",
+            "and", "the", "story", "moves", "on.", "Nobody", "noticed", "anything", "unusual."
+        )
+        val builder = StringBuilder(chars + 16)
+        var i = 0
+        while (builder.length < chars) {
+            builder.append(vocabulary[(i * 7 + i / 5) % vocabulary.size])
+            builder.append(if (++i % 90 == 0) "\n\n" else " ")
+        }
+        return builder.toString()
+    }
+
+    companion object {
+        private const val MIB = 1024 * 1024
+    }
+}
@@ -0,0 +1,48 @@
+package com.speedreader.trainer.domain.text
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class TokenizerTest {
+
+    @Test
+    fun hashIsAWordInPlainText() {
+        val tokens = Tokenizer.tokenize("Count the\n# of items\non the list.")
+
+        assertEquals(listOf("Count", "the", "#", "of", "items", "on", "the", "list."), words(tokens))
+        assertFalse((0 until tokens.size).any { tokens.isHeading(it) })
+        assertEquals(8, Tokenizer.countWords("Count the\n# of items\non the list."))
+    }
+
+    @Test
+    fun markerStartsHeadingInMarkdown() {
+        val tokens = Tokenizer.tokenize("Intro text.\n${Tokenizer.HEADING_MARKER} Chapter One\nBody here.", markdown = true)
+
+        assertEquals(listOf("Intro", "text.", "Chapter", "One", "Body", "here."), words(tokens))
+        assertTrue(tokens.isHeading(2) && tokens.isHeading(3))
+        assertFalse(tokens.isHeading(4))
+        // The heading is its own block on both sides
+        assertTrue(tokens.isParagraphEnd(1) && tokens.isParagraphEnd(3))
+    }
+
+    @Test
+    fun hashIsAWordInMarkdown() {
+        val tokens = Tokenizer.tokenize("# of items\n## seven", markdown = true)
+        assertEquals(listOf("#", "of", "items", "##", "seven"), words(tokens))
+        assertFalse((0 until tokens.size).any { tokens.isHeading(it) })
+    }
+
+    @Test
+    fun paddedPlacesTokensAtTheirDocumentIndex() {
+        val padded = Tokenizer.tokenize("middle words.").padded(wordsBefore = 2, totalWords = 5)
+
+        val placeholder = TokenStream.PLACEHOLDER
+        assertEquals(listOf(placeholder, placeholder, "middle", "words.", placeholder), words(padded))
+        assertTrue(padded.isSentenceEnd(3))
+        assertTrue((1 until padded.size).all { padded.start(it) >= padded.start(it - 1) })
+    }
+
+    private fun words(tokens: TokenStream): List<String> = List(tokens.size) { tokens.wordAt(it) }
+}
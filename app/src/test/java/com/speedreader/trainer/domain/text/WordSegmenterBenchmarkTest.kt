@@ -0,0 +1,66 @@
+package com.speedreader.trainer.domain.text
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Segmentation throughput. Latin text must stay on the whitespace fast path,
+ * and even run through [WordSegmenter.Dictionary] it must cost no more than
+ * [MAX_LATIN_FACTOR] times that path, since Dictionary only scans runs
+ * without unspaced script. The host JVM has no CJK or Thai dictionary, so
+ * real word boundaries are checked on a device by WordSegmenterDeviceTest.
+ */
+class WordSegmenterBenchmarkTest {
+
+    @Test
+    fun latinTextPicksWhitespace() {
+        assertEquals(WordSegmenter.Whitespace, WordSegmenter.forText(latinText(64 * 1024)))
+        assertTrue(WordSegmenter.forText(cjkText(64 * 1024)) is WordSegmenter.Dictionary)
+    }
+
+    @Test
+    fun dictionaryStaysNearWhitespaceOnLatinText() {
+        val text = latinText(TEXT_CHARS)
+        val whitespace = bestOf { Tokenizer.tokenize(text, segmenter = WordSegmenter.Whitespace).size }
+        val dictionary = bestOf { Tokenizer.tokenize(text, segmenter = WordSegmenter.Dictionary()).size }
+
+        assertTrue(
+            "dictionary ${mbPerSecond(dictionary)} MB/s vs whitespace ${mbPerSecond(whitespace)} MB/s",
+            dictionary <= whitespace * MAX_LATIN_FACTOR
+        )
+    }
+
+    /** Fastest of several runs in nanoseconds, after a warm-up, to keep scheduling noise out. */
+    private inline fun bestOf(block: () -> Int): Long {
+        var words = block()
+        var best = Long.MAX_VALUE
+        repeat(RUNS) {
+            val start = System.nanoTime()
+            words += block()
+            best = minOf(best, System.nanoTime() - start)
+        }
+        assertTrue(words > 0)
+        return best
+    }
+
+    private fun mbPerSecond(nanos: Long): Long = TEXT_CHARS * 1_000L / nanos.coerceAtLeast(1)
+
+    private fun latinText(chars: Int): String =
+        repeatTo(chars, "Quick readers skim the page, then slow down for the hard parts.\n\n")
+
+    private fun cjkText(chars: Int): String =
+        repeatTo(chars, "我们今天去图书馆看书。她喜欢读历史小说，也喜欢写日记。\n\n")
+
+    private fun repeatTo(chars: Int, unit: String): String {
+        val builder = StringBuilder(chars + unit.length)
+        while (builder.length < chars) builder.append(unit)
+        return builder.toString()
+    }
+
+    companion object {
+        private const val TEXT_CHARS = 2 * 1024 * 1024
+        private const val RUNS = 5
+        private const val MAX_LATIN_FACTOR = 3
+    }
+}